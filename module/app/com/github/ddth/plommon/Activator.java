@@ -4,8 +4,11 @@ import play.Application;
 import play.Logger;
 import play.Plugin;
 
+import com.github.ddth.plommon.bo.BaseDao;
 import com.github.ddth.plommon.bo.jdbc.BaseJdbcDao;
 import com.github.ddth.plommon.bo.nosql.BaseNosqlDao;
+import com.github.ddth.plommon.bo.profiling.StatementStatsRegistry;
+import com.github.ddth.plommon.utils.SessionUtils;
 
 /**
  * Activate plommon module by adding the following line to {@code play.plugins}
@@ -28,8 +31,11 @@ public class Activator extends Plugin {
     @Override
     public void onStart() {
         super.onStart();
+        StatementStatsRegistry.activatePlugin();
+        BaseDao.configureCache();
         BaseJdbcDao.activatePlugin();
         BaseNosqlDao.activatePlugin();
+        SessionUtils.configure();
     }
 
     @Override
@@ -46,6 +52,24 @@ public class Activator extends Plugin {
             Logger.warn(e.getMessage(), e);
         }
 
+        try {
+            BaseDao.clearL1Cache();
+        } catch (Exception e) {
+            Logger.warn(e.getMessage(), e);
+        }
+
+        try {
+            BaseDao.shutdownCacheExecutors();
+        } catch (Exception e) {
+            Logger.warn(e.getMessage(), e);
+        }
+
+        try {
+            StatementStatsRegistry.inactivatePlugin();
+        } catch (Exception e) {
+            Logger.warn(e.getMessage(), e);
+        }
+
         super.onStop();
     }
 }
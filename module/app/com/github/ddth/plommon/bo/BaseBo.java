@@ -1,7 +1,16 @@
 package com.github.ddth.plommon.bo;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -10,6 +19,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.ddth.commons.utils.DPathUtils;
 import com.github.ddth.commons.utils.SerializationUtils;
+import com.github.ddth.plommon.bo.codec.CompressedBoCodec;
+import com.github.ddth.plommon.bo.codec.IBoCodec;
+import com.github.ddth.plommon.bo.codec.SmileBoCodec;
+import com.github.ddth.plommon.utils.CompiledDPath;
 
 /**
  * Base class for application BOs.
@@ -19,9 +32,118 @@ import com.github.ddth.commons.utils.SerializationUtils;
  */
 public class BaseBo {
 
+    private static volatile IBoCodec defaultCodec = new CompressedBoCodec(SmileBoCodec.INSTANCE);
+
+    /**
+     * Sets the codec used by {@link #toBytes()}/{@link #fromBytes(byte[])}.
+     * 
+     * <p>
+     * Default codec: Smile (binary JSON), deflated when larger than
+     * {@link CompressedBoCodec#DEFAULT_THRESHOLD} bytes.
+     * </p>
+     * 
+     * @param codec
+     * @since 0.5.2
+     */
+    public static void setDefaultCodec(IBoCodec codec) {
+        defaultCodec = codec;
+    }
+
+    /**
+     * Gets the codec used by {@link #toBytes()}/{@link #fromBytes(byte[])}.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static IBoCodec getDefaultCodec() {
+        return defaultCodec;
+    }
+
     @JsonProperty
     private Map<String, Object> attributes = new HashMap<String, Object>();
 
+    /**
+     * Dirty flag, kept out of {@link #attributes} (since v0.5.2) so that
+     * marking the BO dirty does not cost a map write.
+     */
+    private volatile boolean dirty = false;
+
+    /**
+     * DPaths of attributes modified since the BO was last marked clean
+     * (concurrent set, created on first use), and whether the BO has been
+     * marked dirty as a whole (see {@link #markDirty()}).
+     * 
+     * <p>
+     * Setters record paths without locking. Writers set the dirty flag after
+     * recording the change and {@link #markClean()} clears it before clearing
+     * the paths, so a race can only leave the BO dirty without paths, which
+     * makes {@link #getDirtyAttributes()} return all attributes (never fewer
+     * than modified).
+     * </p>
+     */
+    private volatile Set<String> dirtyPaths;
+    private volatile boolean allDirty = false;
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<BaseBo, Set> DIRTY_PATHS_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(BaseBo.class, Set.class, "dirtyPaths");
+
+    private Set<String> dirtyPathsForWrite() {
+        Set<String> result = dirtyPaths;
+        if (result == null) {
+            result = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(8, 0.75f,
+                    1));
+            if (!DIRTY_PATHS_UPDATER.compareAndSet(this, null, result)) {
+                result = dirtyPaths;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Once frozen, {@link #attributes} never changes: reads and serialization
+     * need no lock.
+     */
+    private volatile boolean frozen = false;
+
+    /**
+     * Modification version, bumped (atomically, so that concurrent mutations
+     * never share a version) after every mutation; serialized forms are
+     * memoized against it.
+     */
+    private final AtomicLong version = new AtomicLong();
+    private volatile JsonMemo memoJson;
+    private volatile BytesMemo memoBytes;
+
+    private static class JsonMemo {
+        private final long version;
+        private final String json;
+
+        public JsonMemo(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    private static class BytesMemo {
+        private final long version;
+        private final IBoCodec codec;
+        private final byte[] data;
+
+        public BytesMemo(long version, IBoCodec codec, byte[] data) {
+            this.version = version;
+            this.codec = codec;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Invalidates memoized serialized forms.
+     */
+    private void bumpVersion() {
+        version.incrementAndGet();
+    }
+
     /**
      * Has the BO been changed?
      * 
@@ -30,17 +152,49 @@ public class BaseBo {
      */
     @JsonIgnore
     public boolean isDirty() {
-        Boolean result = getAttribute("__dirty__", Boolean.class);
-        return result != null ? result.booleanValue() : false;
+        return dirty;
     }
 
     /**
      * Marks that the BO is dirty.
      * 
+     * <p>
+     * Note: this method does not record which attributes have been changed;
+     * {@link #getDirtyAttributes()} then returns all attributes until the BO
+     * is marked clean, regardless of the attributes changed via
+     * {@link #setAttribute(String, Object)}. Call this method after modifying
+     * attributes in-place (e.g. a nested map returned by
+     * {@link #getAttribute(String)}) so that the change is written by partial
+     * updates and memoized serialized forms are discarded.
+     * </p>
+     * 
      * @return
      */
     protected BaseBo markDirty() {
-        DPathUtils.setValue(attributes, "__dirty__", Boolean.TRUE);
+        ensureNotFrozen();
+        bumpVersion();
+        allDirty = true;
+        dirty = true;
+        return this;
+    }
+
+    /**
+     * Marks that an attribute has been changed.
+     * 
+     * <p>
+     * Cost: one atomic version increment and one concurrent set insert; no
+     * lock is taken.
+     * </p>
+     * 
+     * @param dPath
+     * @return
+     * @since 0.5.2
+     */
+    protected BaseBo markDirty(String dPath) {
+        ensureNotFrozen();
+        bumpVersion();
+        dirtyPathsForWrite().add(dPath);
+        dirty = true;
         return this;
     }
 
@@ -50,10 +204,204 @@ public class BaseBo {
      * @return
      */
     public BaseBo markClean() {
-        DPathUtils.setValue(attributes, "__dirty__", Boolean.FALSE);
+        dirty = false;
+        allDirty = false;
+        Set<String> paths = dirtyPaths;
+        if (paths != null) {
+            paths.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Freezes the BO: it becomes read-only (mutations throw
+     * {@link IllegalStateException}), reads and serialization no longer lock
+     * the BO, and its JSON/bytes forms are computed once and reused.
+     * 
+     * <p>
+     * Freeze BOs that are shared across threads, e.g. cached instances
+     * returned to many concurrent requests. Use {@link #mutableCopy()} to
+     * modify a frozen BO (copy-on-write).
+     * </p>
+     * 
+     * <p>
+     * Attributes are deep-copied once into unmodifiable maps/lists, so nested
+     * values returned by {@link #getAttribute(String)} can not be modified
+     * either. Note: arrays can not be made read-only; they are copied, but
+     * their elements must not be modified.
+     * </p>
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    @SuppressWarnings("unchecked")
+    synchronized public BaseBo freeze() {
+        if (!frozen) {
+            attributes = (Map<String, Object>) deepFreeze(attributes != null ? attributes
+                    : new HashMap<String, Object>());
+            frozen = true;
+        }
         return this;
     }
 
+    private static Object deepFreeze(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> result = new HashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result.put(entry.getKey(), deepFreeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(result);
+        }
+        if (value instanceof List) {
+            List<Object> result = new ArrayList<Object>();
+            for (Object item : (List<?>) value) {
+                result.add(deepFreeze(item));
+            }
+            return Collections.unmodifiableList(result);
+        }
+        if (value instanceof Object[]) {
+            Object[] array = ((Object[]) value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = deepFreeze(array[i]);
+            }
+            return array;
+        }
+        return value;
+    }
+
+    /**
+     * Is the BO frozen?
+     * 
+     * @return
+     * @since 0.5.2
+     * @see #freeze()
+     */
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Creates a new, non-frozen BO of the same class with a deep copy of this
+     * BO's attributes.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends BaseBo> T mutableCopy() {
+        Map<String, Object> attrs;
+        if (frozen) {
+            attrs = (Map<String, Object>) deepCopy(attributes);
+        } else {
+            synchronized (this) {
+                attrs = (Map<String, Object>) deepCopy(attributes != null ? attributes
+                        : new HashMap<String, Object>());
+            }
+        }
+        try {
+            BaseBo bo = getClass().newInstance();
+            bo.attachAttributes(attrs);
+            return (T) bo;
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> result = new HashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return result;
+        }
+        if (value instanceof List) {
+            List<Object> result = new ArrayList<Object>();
+            for (Object item : (List<?>) value) {
+                result.add(deepCopy(item));
+            }
+            return result;
+        }
+        if (value instanceof Object[]) {
+            Object[] array = ((Object[]) value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = deepCopy(array[i]);
+            }
+            return array;
+        }
+        return value;
+    }
+
+    private void ensureNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("BO is frozen, use mutableCopy() to modify it.");
+        }
+    }
+
+    /**
+     * Gets DPaths of attributes modified since the BO was last marked clean.
+     * 
+     * <p>
+     * Paths are returned in no particular order. Note: the result does not
+     * include changes marked by
+     * {@link #markDirty()} (which records no attribute paths); use
+     * {@link #getDirtyAttributes()} to get everything that must be written.
+     * </p>
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    @JsonIgnore
+    public Set<String> getDirtyPaths() {
+        Set<String> paths = dirtyPaths;
+        return paths != null ? Collections.unmodifiableSet(new LinkedHashSet<String>(paths))
+                : Collections.<String> emptySet();
+    }
+
+    /**
+     * Gets the modified top-level attributes (e.g. the columns to write),
+     * with their current values.
+     * 
+     * <p>
+     * An attribute is included if any DPath under it has been modified (e.g.
+     * attribute {@code "a"} for a change of {@code "a.b.[0]"}). If the BO has
+     * been marked dirty by {@link #markDirty()} since it was last marked
+     * clean, all attributes are returned. If the BO is not dirty, the result
+     * is empty.
+     * </p>
+     * 
+     * @return map of {attributeName:value}
+     * @since 0.5.2
+     */
+    @JsonIgnore
+    synchronized public Map<String, Object> getDirtyAttributes() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        if (!dirty || attributes == null) {
+            return result;
+        }
+        Set<String> paths = dirtyPaths;
+        if (paths == null) {
+            paths = Collections.emptySet();
+        }
+        boolean all = allDirty || paths.isEmpty();
+        for (String dPath : paths) {
+            String attr = CompiledDPath.cached(dPath).getRootKey();
+            if (attr == null) {
+                all = true;
+                break;
+            }
+            result.put(attr, attributes.get(attr));
+        }
+        if (all) {
+            result.clear();
+            result.putAll(attributes);
+        }
+        return result;
+    }
+
     /**
      * Gets a BO's attribute.
      * 
@@ -62,7 +410,7 @@ public class BaseBo {
      * @see DPathUtils
      */
     protected Object getAttribute(String dPath) {
-        return DPathUtils.getValue(attributes, dPath);
+        return getAttribute(CompiledDPath.cached(dPath));
     }
 
     /**
@@ -74,7 +422,30 @@ public class BaseBo {
      * @see DPathUtils
      */
     protected <T> T getAttribute(String dPath, Class<T> clazz) {
-        return DPathUtils.getValue(attributes, dPath, clazz);
+        return getAttribute(CompiledDPath.cached(dPath), clazz);
+    }
+
+    /**
+     * Gets a BO's attribute.
+     * 
+     * @param dPath
+     * @return
+     * @since 0.5.2
+     */
+    protected Object getAttribute(CompiledDPath dPath) {
+        return dPath.getValue(attributes);
+    }
+
+    /**
+     * Gets a BO's attribute.
+     * 
+     * @param dPath
+     * @param clazz
+     * @return
+     * @since 0.5.2
+     */
+    protected <T> T getAttribute(CompiledDPath dPath, Class<T> clazz) {
+        return dPath.getValue(attributes, clazz);
     }
 
     /**
@@ -86,8 +457,21 @@ public class BaseBo {
      * @see DPathUtils
      */
     protected BaseBo setAttribute(String dPath, Object value) {
-        DPathUtils.setValue(attributes, dPath, value);
-        markDirty();
+        return setAttribute(CompiledDPath.cached(dPath), value);
+    }
+
+    /**
+     * Sets a BO's attribute.
+     * 
+     * @param dPath
+     * @param value
+     * @return
+     * @since 0.5.2
+     */
+    protected BaseBo setAttribute(CompiledDPath dPath, Object value) {
+        ensureNotFrozen();
+        dPath.setValue(attributes, value);
+        markDirty(dPath.getPath());
         return this;
     }
 
@@ -98,10 +482,33 @@ public class BaseBo {
      * @return
      */
     synchronized public BaseBo fromMap(Map<String, Object> data) {
+        ensureNotFrozen();
         attributes = new HashMap<String, Object>();
         if (data != null) {
             attributes.putAll(data);
         }
+        bumpVersion();
+        markClean();
+        return this;
+    }
+
+    /**
+     * Populates the BO with data from a Java map, taking ownership of the
+     * supplied map (i.e. the map is used as the BO's attribute storage
+     * without being copied).
+     * 
+     * <p>
+     * Note: caller must not modify the supplied map afterward.
+     * </p>
+     * 
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    synchronized public BaseBo attachAttributes(Map<String, Object> data) {
+        ensureNotFrozen();
+        attributes = data != null ? data : new HashMap<String, Object>();
+        bumpVersion();
         markClean();
         return this;
     }
@@ -111,12 +518,17 @@ public class BaseBo {
      * 
      * @return
      */
-    synchronized public Map<String, Object> toMap() {
-        Map<String, Object> result = new HashMap<String, Object>();
-        if (attributes != null) {
-            result.putAll(attributes);
+    public Map<String, Object> toMap() {
+        if (frozen) {
+            return new HashMap<String, Object>(attributes);
+        }
+        synchronized (this) {
+            Map<String, Object> result = new HashMap<String, Object>();
+            if (attributes != null) {
+                result.putAll(attributes);
+            }
+            return result;
         }
-        return result;
     }
 
     /**
@@ -126,11 +538,14 @@ public class BaseBo {
      * @return
      */
     synchronized public BaseBo fromJson(String jsonString) {
+        ensureNotFrozen();
         BaseBo other = SerializationUtils.fromJsonString(jsonString, BaseBo.class);
         if (other != null) {
             other.markClean();
             this.attributes = other.attributes != null ? other.attributes
                     : new HashMap<String, Object>();
+            bumpVersion();
+            markClean();
             return this;
         }
         return null;
@@ -139,10 +554,115 @@ public class BaseBo {
     /**
      * Serializes the BO to JSON string.
      * 
+     * <p>
+     * Since v0.5.2 the result is memoized until the BO is modified.
+     * </p>
+     * 
+     * @return
+     */
+    public String toJson() {
+        JsonMemo memo = memoJson;
+        if (memo != null && memo.version == version.get()) {
+            return memo.json;
+        }
+        if (frozen) {
+            long v = version.get();
+            String json = SerializationUtils.toJsonString(this);
+            memoJson = new JsonMemo(v, json);
+            return json;
+        }
+        synchronized (this) {
+            long v = version.get();
+            String json = SerializationUtils.toJsonString(this);
+            memoJson = new JsonMemo(v, json);
+            return json;
+        }
+    }
+
+    /**
+     * Populates the BO with data encoded by {@link #toBytes()}.
+     * 
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    public BaseBo fromBytes(byte[] data) {
+        return fromBytes(data, defaultCodec);
+    }
+
+    /**
+     * Populates the BO with data encoded by a specific codec.
+     * 
+     * @param data
+     * @param codec
+     * @return
+     * @since 0.5.2
+     */
+    public BaseBo fromBytes(byte[] data, IBoCodec codec) {
+        Map<String, Object> attrs = codec.decode(data);
+        return attrs != null ? attachAttributes(attrs) : null;
+    }
+
+    /**
+     * Serializes the BO to bytes, using the default codec (see
+     * {@link #setDefaultCodec(IBoCodec)}).
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public byte[] toBytes() {
+        return toBytes(defaultCodec);
+    }
+
+    /**
+     * Serializes the BO to bytes, using a specific codec.
+     * 
+     * <p>
+     * The result of the last used codec is memoized until the BO is modified.
+     * </p>
+     * 
+     * @param codec
      * @return
+     * @since 0.5.2
+     */
+    public byte[] toBytes(IBoCodec codec) {
+        BytesMemo memo = memoBytes;
+        long current = version.get();
+        if (memo == null || memo.version != current || memo.codec != codec) {
+            if (frozen) {
+                memo = new BytesMemo(current, codec, codec.encode(attributes));
+            } else {
+                synchronized (this) {
+                    long v = version.get();
+                    memo = new BytesMemo(v, codec, codec.encode(attributes != null ? attributes
+                            : new HashMap<String, Object>()));
+                }
+            }
+            memoBytes = memo;
+        }
+        return memo.data != null ? memo.data.clone() : null;
+    }
+
+    /**
+     * Constructs a new BO from data encoded by {@link #toBytes()}.
+     * 
+     * @param data
+     * @param clazz
+     * @return {@code null} if {@code data} is {@code null} or empty
+     * @since 0.5.2
      */
-    synchronized public String toJson() {
-        return SerializationUtils.toJsonString(this);
+    public static <T extends BaseBo> T newObjectFromBytes(byte[] data, Class<T> clazz) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            T bo = clazz.newInstance();
+            return bo.fromBytes(data) != null ? bo : null;
+        } catch (InstantiationException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -186,6 +706,11 @@ public class BaseBo {
     /**
      * {@inheritDoc}
      * 
+     * <p>
+     * Returns {@link #toJson()}, hence the memoized JSON form if the BO has not
+     * been modified since.
+     * </p>
+     * 
      * @since 0.5.1.3
      */
     public String toString() {
@@ -1,10 +1,47 @@
 package com.github.ddth.plommon.bo;
 
 import java.nio.charset.Charset;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import play.cache.Cache;
+import com.github.ddth.plommon.bo.cache.AbsentValue;
+import com.github.ddth.plommon.bo.cache.CacheEntry;
+import com.github.ddth.plommon.bo.cache.CacheLookup;
+import com.github.ddth.plommon.bo.cache.CacheMetrics;
+import com.github.ddth.plommon.bo.cache.CachePolicy;
+import com.github.ddth.plommon.bo.cache.IBulkCacheBackend;
+import com.github.ddth.plommon.bo.cache.ICacheBackend;
+import com.github.ddth.plommon.bo.cache.IRemoteCacheBackend;
+import com.github.ddth.plommon.bo.cache.PlayCacheBackend;
+import com.github.ddth.plommon.bo.profiling.IProfilingSink;
+import com.github.ddth.plommon.bo.profiling.IThreadBoundProfilingSink;
+import com.github.ddth.plommon.bo.profiling.NoopProfilingSink;
+import com.github.ddth.plommon.bo.profiling.RingBufferProfilingSink;
+import com.github.ddth.plommon.bo.profiling.StatementStatsRegistry;
+import com.github.ddth.plommon.utils.PlayAppUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Base class for application DAOs.
@@ -19,14 +56,30 @@ public abstract class BaseDao {
     public final static String DEFAULT_DATASOURCE_NAME = "default";
 
     /**
-     * @since 0.5.1.2
+     * @since 0.5.2
      */
-    private static ThreadLocal<List<ProfilingRecord>> profilingRecords = new ThreadLocal<List<ProfilingRecord>>() {
-        @Override
-        protected List<ProfilingRecord> initialValue() {
-            return new LinkedList<ProfilingRecord>();
-        }
-    };
+    private static volatile IProfilingSink profilingSink = new RingBufferProfilingSink();
+
+    /**
+     * Sets the profiling sink.
+     * 
+     * @param sink
+     *            supply {@code null} to disable profiling
+     * @since 0.5.2
+     */
+    public static void setProfilingSink(IProfilingSink sink) {
+        profilingSink = sink != null ? sink : NoopProfilingSink.INSTANCE;
+    }
+
+    /**
+     * Gets the current profiling sink.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static IProfilingSink getProfilingSink() {
+        return profilingSink;
+    }
 
     /**
      * Initializes profiling data.
@@ -34,7 +87,7 @@ public abstract class BaseDao {
      * @since 0.5.1.2
      */
     public static void startProfiling() {
-        profilingRecords.remove();
+        profilingSink.clear();
     }
 
     /**
@@ -43,7 +96,7 @@ public abstract class BaseDao {
      * @since 0.5.1.2
      */
     public static void clearProfiling() {
-        profilingRecords.remove();
+        profilingSink.clear();
     }
 
     /**
@@ -53,21 +106,99 @@ public abstract class BaseDao {
      * @since 0.5.1.2
      */
     public static ProfilingRecord[] getProfiling() {
-        return profilingRecords.get().toArray(ProfilingRecord.EMPTY_ARRAY);
+        return profilingSink.getRecords();
     }
 
     /**
      * Adds a new profiling record.
      * 
+     * <p>
+     * Since v0.5.2 the execution is also recorded to
+     * {@link StatementStatsRegistry}.
+     * </p>
+     * 
      * @param execTimeMs
      * @param command
-     * @return
+     * @return the created record, or {@code null} if the current profiling sink
+     *         does not keep individual records
      * @since 0.5.1.2
      */
     public static ProfilingRecord addProfiling(long execTimeMs, String command) {
-        ProfilingRecord record = new ProfilingRecord(execTimeMs, command);
-        profilingRecords.get().add(record);
-        return record;
+        return addProfilingNs(execTimeMs * 1000000L, command, false);
+    }
+
+    /**
+     * Adds a new profiling record, with nanosecond resolution.
+     * 
+     * @param execTimeNs
+     *            execution time in nanoseconds (e.g. difference of two
+     *            {@link System#nanoTime()} calls)
+     * @param command
+     * @return the created record, or {@code null} if the current profiling sink
+     *         does not keep individual records
+     * @since 0.5.2
+     */
+    public static ProfilingRecord addProfilingNs(long execTimeNs, String command) {
+        return addProfilingNs(execTimeNs, command, false);
+    }
+
+    /**
+     * Adds a new profiling record, with nanosecond resolution.
+     * 
+     * <p>
+     * The execution is also recorded to {@link StatementStatsRegistry}.
+     * </p>
+     * 
+     * @param execTimeNs
+     *            execution time in nanoseconds
+     * @param command
+     * @param error
+     *            has the execution failed?
+     * @return the created record, or {@code null} if the current profiling sink
+     *         does not keep individual records
+     * @since 0.5.2
+     */
+    public static ProfilingRecord addProfilingNs(long execTimeNs, String command, boolean error) {
+        return addProfilingNs(profilingSink, execTimeNs, command, error);
+    }
+
+    /**
+     * Gets a profiling sink to record asynchronous work started by the current
+     * thread: records added to it (from any thread, e.g. a completion
+     * callback) are visible to this thread's {@link #getProfiling()} if the
+     * current sink is an {@link IThreadBoundProfilingSink}.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static IProfilingSink captureProfilingSink() {
+        IProfilingSink sink = profilingSink;
+        return sink instanceof IThreadBoundProfilingSink ? ((IThreadBoundProfilingSink) sink)
+                .bindToCurrentThread() : sink;
+    }
+
+    /**
+     * Adds a new profiling record to a specific sink (see
+     * {@link #captureProfilingSink()}).
+     * 
+     * <p>
+     * The execution is also recorded to {@link StatementStatsRegistry}.
+     * </p>
+     * 
+     * @param sink
+     * @param execTimeNs
+     *            execution time in nanoseconds
+     * @param command
+     * @param error
+     *            has the execution failed?
+     * @return the created record, or {@code null} if the sink does not keep
+     *         individual records
+     * @since 0.5.2
+     */
+    public static ProfilingRecord addProfilingNs(IProfilingSink sink, long execTimeNs,
+            String command, boolean error) {
+        StatementStatsRegistry.record(command, execTimeNs, error);
+        return sink.record(execTimeNs, command);
     }
 
     /**
@@ -85,13 +216,333 @@ public abstract class BaseDao {
     }
 
     /*--------------------------------------------------------------------------------*/
+    public final static String CONF_KEY_CACHE_L1_MAX_ENTRIES = "plommon.cache.l1.maxEntries";
+    public final static String CONF_KEY_CACHE_L1_TTL = "plommon.cache.l1.ttl";
+    public final static String CONF_KEY_CACHE_L1_PREFIXES = "plommon.cache.l1.prefixes";
+    public final static String CONF_KEY_CACHE_POLICIES = "plommon.cache.policies";
+
+    /**
+     * Default max number of entries of the in-process (L1) cache.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_L1_MAX_ENTRIES = 10000;
+
+    private static class L1Entry {
+        private final Object value;
+        private final long expireAt;
+
+        public L1Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static volatile Cache<String, L1Entry> l1Cache = newL1Cache(DEFAULT_L1_MAX_ENTRIES);
+    private static volatile int l1DefaultTtl = 0;
+
+    /**
+     * A registered {@link CachePolicy}, with its own L1 cache (if any).
+     */
+    private static class PolicyHolder {
+        private final CachePolicy policy;
+        private final Cache<String, L1Entry> l1Cache;
+
+        public PolicyHolder(CachePolicy policy) {
+            this.policy = policy;
+            this.l1Cache = policy.getL1MaxEntries() > 0 ? newL1Cache(policy.getL1MaxEntries())
+                    : null;
+        }
+    }
+
+    /**
+     * Registered policies, sorted by prefix length (descending).
+     */
+    private static volatile List<PolicyHolder> cachePolicies = new ArrayList<PolicyHolder>();
+    private final static CacheMetrics cacheMetrics = new CacheMetrics();
+
+    private static volatile ICacheBackend cacheBackend = PlayCacheBackend.INSTANCE;
+
+    /**
+     * Sets the backend (L2) cache.
+     * 
+     * @param backend
+     *            supply {@code null} to use Play's cache
+     * @since 0.5.2
+     */
+    public static void setCacheBackend(ICacheBackend backend) {
+        cacheBackend = backend != null ? backend : PlayCacheBackend.INSTANCE;
+    }
+
+    /**
+     * Gets the backend (L2) cache.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static ICacheBackend getCacheBackend() {
+        return cacheBackend;
+    }
+
+    private static Cache<String, L1Entry> newL1Cache(int maxEntries) {
+        return CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    /**
+     * Configures the two-tier cache from {@code application.conf}. Called by
+     * Play's module activator routine.
+     * 
+     * <p>
+     * Configurations:
+     * </p>
+     * <ul>
+     * <li>{@code plommon.cache.l1.maxEntries}: max number of entries in the
+     * in-process (L1) cache (default {@value #DEFAULT_L1_MAX_ENTRIES}).</li>
+     * <li>{@code plommon.cache.l1.ttl}: default L1 TTL in seconds (default
+     * {@code 0}, i.e. entries are not cached in L1).</li>
+     * <li>{@code plommon.cache.l1.prefixes}: L1 TTLs per key prefix, e.g.
+     * <code>{ "user:" = 30, "post:" = 10 }</code>.</li>
+     * <li>{@code plommon.cache.negativeTtl}: TTL in seconds of "absent" markers
+     * (default {@code 0}, i.e. negative caching is disabled).</li>
+     * <li>{@code plommon.cache.policies}: {@link CachePolicy}s per key prefix,
+     * e.g.
+     * <code>{ "user:" { ttl = 3600, jitter = 10, l1Ttl = 30, l1MaxEntries = 5000, negativeCache = true, negativeTtl = 60 } }</code>
+     * .</li>
+     * <li>{@code plommon.cache.namespace.l1Ttl}: seconds a namespace
+     * generation is kept in-process (default
+     * {@value #DEFAULT_NAMESPACE_L1_TTL}).</li>
+     * </ul>
+     * 
+     * @since 0.5.2
+     */
+    public static void configureCache() {
+        Integer confMaxEntries = PlayAppUtils.appConfigInteger(CONF_KEY_CACHE_L1_MAX_ENTRIES);
+        l1Cache = newL1Cache(confMaxEntries != null ? confMaxEntries.intValue()
+                : DEFAULT_L1_MAX_ENTRIES);
+
+        Integer confTtl = PlayAppUtils.appConfigInteger(CONF_KEY_CACHE_L1_TTL);
+        l1DefaultTtl = confTtl != null ? confTtl.intValue() : 0;
+
+        Map<String, CachePolicy> policies = new HashMap<String, CachePolicy>();
+        Map<String, Object> confPrefixes = PlayAppUtils.appConfigMap(PlayAppUtils
+                .appConfig(CONF_KEY_CACHE_L1_PREFIXES));
+        if (confPrefixes != null) {
+            for (Map.Entry<String, Object> entry : confPrefixes.entrySet()) {
+                if (entry.getValue() instanceof Number) {
+                    policies.put(entry.getKey(), new CachePolicy(entry.getKey())
+                            .setL1Ttl(((Number) entry.getValue()).intValue()));
+                }
+            }
+        }
+        Map<String, Object> confPolicies = PlayAppUtils.appConfigMap(PlayAppUtils
+                .appConfig(CONF_KEY_CACHE_POLICIES));
+        if (confPolicies != null) {
+            for (Map.Entry<String, Object> entry : confPolicies.entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> conf = (Map<String, Object>) entry.getValue();
+                    policies.put(entry.getKey(), CachePolicy.fromConfig(entry.getKey(), conf));
+                }
+            }
+        }
+        setCachePolicies(policies.values());
+
+        Integer confNegativeTtl = PlayAppUtils.appConfigInteger(CONF_KEY_CACHE_NEGATIVE_TTL);
+        setNegativeCacheTtl(confNegativeTtl != null ? confNegativeTtl.intValue() : 0);
+
+        Integer confNamespaceL1Ttl = PlayAppUtils
+                .appConfigInteger(CONF_KEY_CACHE_NAMESPACE_L1_TTL);
+        setNamespaceL1Ttl(confNamespaceL1Ttl != null ? confNamespaceL1Ttl.intValue()
+                : DEFAULT_NAMESPACE_L1_TTL);
+    }
+
+    /**
+     * Replaces all registered cache policies.
+     * 
+     * @param policies
+     * @since 0.5.2
+     */
+    synchronized public static void setCachePolicies(Collection<CachePolicy> policies) {
+        List<PolicyHolder> holders = new ArrayList<PolicyHolder>();
+        if (policies != null) {
+            for (CachePolicy policy : policies) {
+                holders.add(new PolicyHolder(policy));
+            }
+        }
+        Collections.sort(holders, new Comparator<PolicyHolder>() {
+            @Override
+            public int compare(PolicyHolder o1, PolicyHolder o2) {
+                return o2.policy.getPrefix().length() - o1.policy.getPrefix().length();
+            }
+        });
+        cachePolicies = holders;
+    }
+
+    /**
+     * Registers a cache policy, replacing the existing one with the same
+     * prefix (if any).
+     * 
+     * @param policy
+     * @since 0.5.2
+     */
+    synchronized public static void setCachePolicy(CachePolicy policy) {
+        List<CachePolicy> policies = new ArrayList<CachePolicy>();
+        for (PolicyHolder holder : cachePolicies) {
+            if (!holder.policy.getPrefix().equals(policy.getPrefix())) {
+                policies.add(holder.policy);
+            }
+        }
+        policies.add(policy);
+        setCachePolicies(policies);
+    }
+
+    private static PolicyHolder policyHolder(String key) {
+        for (PolicyHolder holder : cachePolicies) {
+            if (holder.policy.matches(key)) {
+                return holder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the cache policy applied to a cache key (the longest matching
+     * prefix wins).
+     * 
+     * @param key
+     * @return {@code null} if no policy applies
+     * @since 0.5.2
+     */
+    public static CachePolicy getCachePolicy(String key) {
+        PolicyHolder holder = policyHolder(key);
+        return holder != null ? holder.policy : null;
+    }
+
+    /**
+     * Sets the default L1 TTL.
+     * 
+     * @param ttl
+     *            TTL in seconds, {@code 0} means entries are not cached in L1
+     * @since 0.5.2
+     */
+    public static void setL1DefaultTtl(int ttl) {
+        l1DefaultTtl = ttl;
+    }
+
+    /**
+     * Sets L1 TTL for keys starting with a specific prefix.
+     * 
+     * @param keyPrefix
+     * @param ttl
+     *            TTL in seconds, {@code 0} means entries are not cached in L1
+     * @since 0.5.2
+     */
+    synchronized public static void setL1Ttl(String keyPrefix, int ttl) {
+        CachePolicy policy = null;
+        for (PolicyHolder holder : cachePolicies) {
+            if (holder.policy.getPrefix().equals(keyPrefix)) {
+                policy = holder.policy;
+            }
+        }
+        CachePolicy newPolicy = new CachePolicy(keyPrefix).setL1Ttl(ttl);
+        if (policy != null) {
+            newPolicy.setTtl(policy.getTtl()).setJitterPercent(policy.getJitterPercent())
+                    .setL1MaxEntries(policy.getL1MaxEntries())
+                    .setNegativeCache(policy.getNegativeCache())
+                    .setNegativeTtl(policy.getNegativeTtl());
+        }
+        setCachePolicy(newPolicy);
+    }
+
+    /**
+     * Gets L1 TTL of a cache key.
+     * 
+     * @param key
+     * @return TTL in seconds, {@code 0} means the key is not cached in L1
+     * @since 0.5.2
+     */
+    protected static int l1Ttl(String key) {
+        PolicyHolder holder = policyHolder(key);
+        int ttl = holder != null ? holder.policy.getL1Ttl() : -1;
+        return ttl >= 0 ? ttl : l1DefaultTtl;
+    }
+
+    /**
+     * Gets the TTL an entry is actually put to cache with: the matching
+     * policy's default TTL is used if {@code ttl} is not positive, and the
+     * policy's jitter is applied.
+     * 
+     * @param key
+     * @param ttl
+     * @return
+     * @since 0.5.2
+     */
+    protected static int effectiveTtl(String key, int ttl) {
+        CachePolicy policy = getCachePolicy(key);
+        return policy != null ? policy.effectiveTtl(ttl) : (ttl > 0 ? ttl : 0);
+    }
+
+    private static Cache<String, L1Entry> l1CacheFor(String key) {
+        PolicyHolder holder = policyHolder(key);
+        return holder != null && holder.l1Cache != null ? holder.l1Cache : l1Cache;
+    }
+
+    /**
+     * Gets hit/miss counters of the two-tier cache.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static CacheMetrics getCacheMetrics() {
+        return cacheMetrics;
+    }
+
+    /**
+     * Clears the in-process (L1) cache.
+     * 
+     * @since 0.5.2
+     */
+    public static void clearL1Cache() {
+        l1Cache.invalidateAll();
+        namespaceGenerations.invalidateAll();
+        for (PolicyHolder holder : cachePolicies) {
+            if (holder.l1Cache != null) {
+                holder.l1Cache.invalidateAll();
+            }
+        }
+    }
+
+    private static Object getFromL1Cache(String key) {
+        Cache<String, L1Entry> cache = l1CacheFor(key);
+        L1Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.expireAt > System.currentTimeMillis()) {
+                return entry.value;
+            }
+            cache.invalidate(key);
+        }
+        return null;
+    }
+
+    private static void putToL1Cache(String key, Object value, int ttl) {
+        int l1Ttl = l1Ttl(key);
+        if (ttl > 0 && ttl < l1Ttl) {
+            l1Ttl = ttl;
+        }
+        if (l1Ttl > 0) {
+            l1CacheFor(key).put(key,
+                    new L1Entry(value, System.currentTimeMillis() + l1Ttl * 1000L));
+        }
+    }
+
     /**
      * Removes an entry from cache.
      * 
      * @param key
      */
     protected static void removeFromCache(String key) {
-        Cache.remove(key);
+        l1CacheFor(key).invalidate(key);
+        cacheBackend.remove(key);
     }
 
     /**
@@ -107,6 +558,12 @@ public abstract class BaseDao {
     /**
      * Puts an entry to cache, with specific TTL.
      * 
+     * <p>
+     * The entry is put to both the backend (L2) cache and, if the key has a
+     * positive L1 TTL, to the in-process (L1) cache. The matching
+     * {@link CachePolicy} (if any) is applied to the TTL.
+     * </p>
+     * 
      * @param key
      * @param value
      * @param ttl
@@ -114,22 +571,95 @@ public abstract class BaseDao {
      */
     protected static void putToCache(String key, Object value, int ttl) {
         if (value != null) {
-            if (ttl > 0) {
-                Cache.set(key, value, ttl);
-            } else {
-                Cache.set(key, value);
-            }
+            putToCacheWithEffectiveTtl(key, value, effectiveTtl(key, ttl));
+        }
+    }
+
+    /**
+     * Puts an entry to cache, with a TTL the {@link CachePolicy} has already
+     * been applied to (i.e. no further jitter/default TTL).
+     */
+    private static void putToCacheWithEffectiveTtl(String key, Object value, int effectiveTtl) {
+        cacheBackend.set(key, value, effectiveTtl);
+        putToL1Cache(key, value, effectiveTtl);
+    }
+
+    /**
+     * Puts a BO to cache, encoded with {@link BaseBo#toBytes()}.
+     * 
+     * <p>
+     * The cache holds the encoded bytes instead of the (mutable) BO object:
+     * entries are compact, and each {@link #getBoFromCache(String, Class)}
+     * returns a new, independent BO instance.
+     * </p>
+     * 
+     * @param key
+     * @param bo
+     * @param ttl
+     *            TTL in seconds
+     * @since 0.5.2
+     */
+    protected static void putBoToCache(String key, BaseBo bo, int ttl) {
+        if (bo != null) {
+            putToCache(key, bo.toBytes(), ttl);
         }
     }
 
+    /**
+     * Gets a BO put to cache by {@link #putBoToCache(String, BaseBo, int)}.
+     * 
+     * @param key
+     * @param clazz
+     * @return {@code null} if not found
+     * @since 0.5.2
+     */
+    protected static <T extends BaseBo> T getBoFromCache(String key, Class<T> clazz) {
+        Object data = getFromCache(key);
+        return data instanceof byte[] ? BaseBo.newObjectFromBytes((byte[]) data, clazz) : null;
+    }
+
     /**
      * Gets an entry from cache.
      * 
+     * <p>
+     * The in-process (L1) cache is looked up first, then the backend (L2)
+     * cache.
+     * </p>
+     * 
      * @param key
      * @return
      */
     protected static Object getFromCache(String key) {
-        return Cache.get(key);
+        return unwrapCached(getRawFromCache(key));
+    }
+
+    /**
+     * Unwraps a raw cached object: {@link CacheEntry} wrappers are unwrapped
+     * and {@link AbsentValue} markers are converted to {@code null}.
+     */
+    private static Object unwrapCached(Object obj) {
+        Object value = CacheEntry.unwrap(obj);
+        return value instanceof AbsentValue ? null : value;
+    }
+
+    /**
+     * Gets an entry from cache, as-is (i.e. {@link CacheEntry} wrappers are not
+     * unwrapped).
+     */
+    private static Object getRawFromCache(String key) {
+        Object value = getFromL1Cache(key);
+        if (value != null) {
+            cacheMetrics.l1Hit();
+            return value;
+        }
+        value = cacheBackend.get(key);
+        if (value != null) {
+            cacheMetrics.l2Hit();
+            putToL1Cache(key, value, 0);
+        } else {
+            cacheMetrics.miss();
+        }
+        return value;
     }
 
     /**
@@ -153,4 +683,627 @@ public abstract class BaseDao {
         }
         return null;
     }
+
+    /**
+     * Max number of concurrent backend requests of multi-key operations (when
+     * the backend is remote, see {@link IRemoteCacheBackend}, and does not
+     * support bulk operations).
+     * 
+     * @since 0.5.2
+     */
+    public final static int CACHE_FANOUT_PARALLELISM = 8;
+
+    private static ExecutorService cacheFanoutExecutor;
+
+    synchronized private static ExecutorService cacheFanoutExecutor() {
+        if (cacheFanoutExecutor == null || cacheFanoutExecutor.isShutdown()) {
+            cacheFanoutExecutor = Executors.newFixedThreadPool(CACHE_FANOUT_PARALLELISM,
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat("plommon-cache-fanout-%d").build());
+        }
+        return cacheFanoutExecutor;
+    }
+
+    private static <T> List<T> waitAll(List<Future<T>> futures) {
+        List<T> result = new ArrayList<T>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Gets multiple entries from cache.
+     * 
+     * <p>
+     * Entries are served from the in-process (L1) cache where possible; the
+     * remaining keys are fetched from the backend (L2) cache in one batch if
+     * the backend supports bulk operations ({@link IBulkCacheBackend}), by
+     * parallel requests if it is remote ({@link IRemoteCacheBackend}), or one
+     * by one in the calling thread otherwise (in-process backends).
+     * </p>
+     * 
+     * @param keys
+     * @return map of {key:value}; entries that are not cached (or known
+     *         missing) are not included
+     * @since 0.5.2
+     */
+    protected static Map<String, Object> getMultiFromCache(Collection<String> keys) {
+        Map<String, Object> result = new HashMap<String, Object>();
+        if (keys == null || keys.size() == 0) {
+            return result;
+        }
+        List<String> l2Keys = new ArrayList<String>();
+        for (String key : keys) {
+            Object value = getFromL1Cache(key);
+            if (value != null) {
+                cacheMetrics.l1Hit();
+                result.put(key, value);
+            } else {
+                l2Keys.add(key);
+            }
+        }
+
+        if (l2Keys.size() > 0) {
+            Map<String, Object> l2Result;
+            final ICacheBackend backend = cacheBackend;
+            if (backend instanceof IBulkCacheBackend) {
+                l2Result = ((IBulkCacheBackend) backend).getMulti(l2Keys);
+            } else if (l2Keys.size() == 1 || !(backend instanceof IRemoteCacheBackend)) {
+                l2Result = new HashMap<String, Object>();
+                for (String key : l2Keys) {
+                    l2Result.put(key, backend.get(key));
+                }
+            } else {
+                List<Future<Object>> futures = new ArrayList<Future<Object>>(l2Keys.size());
+                for (final String key : l2Keys) {
+                    futures.add(cacheFanoutExecutor().submit(new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            return backend.get(key);
+                        }
+                    }));
+                }
+                List<Object> values = waitAll(futures);
+                l2Result = new HashMap<String, Object>();
+                for (int i = 0, n = l2Keys.size(); i < n; i++) {
+                    l2Result.put(l2Keys.get(i), values.get(i));
+                }
+            }
+            for (String key : l2Keys) {
+                Object value = l2Result != null ? l2Result.get(key) : null;
+                if (value != null) {
+                    cacheMetrics.l2Hit();
+                    putToL1Cache(key, value, 0);
+                    result.put(key, value);
+                } else {
+                    cacheMetrics.miss();
+                }
+            }
+        }
+
+        Iterator<Map.Entry<String, Object>> it = result.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Object> entry = it.next();
+            Object value = unwrapCached(entry.getValue());
+            if (value == null) {
+                it.remove();
+            } else {
+                entry.setValue(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts multiple entries to cache.
+     * 
+     * <p>
+     * Entries are put to the backend (L2) cache in one batch if the backend
+     * supports bulk operations ({@link IBulkCacheBackend}), by parallel
+     * requests if it is remote ({@link IRemoteCacheBackend}), or one by one in
+     * the calling thread otherwise. {@code null} values are ignored.
+     * </p>
+     * 
+     * @param entries
+     * @param ttl
+     *            TTL in seconds
+     * @since 0.5.2
+     */
+    protected static void putMultiToCache(Map<String, Object> entries, int ttl) {
+        if (entries == null || entries.size() == 0) {
+            return;
+        }
+        // group entries by effective TTL, as bulk backends take one TTL per call
+        Map<Integer, Map<String, Object>> toPut = new HashMap<Integer, Map<String, Object>>();
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (entry.getValue() != null) {
+                Integer effectiveTtl = effectiveTtl(entry.getKey(), ttl);
+                Map<String, Object> group = toPut.get(effectiveTtl);
+                if (group == null) {
+                    group = new HashMap<String, Object>();
+                    toPut.put(effectiveTtl, group);
+                }
+                group.put(entry.getKey(), entry.getValue());
+            }
+        }
+        final ICacheBackend backend = cacheBackend;
+        if (backend instanceof IBulkCacheBackend) {
+            for (Map.Entry<Integer, Map<String, Object>> group : toPut.entrySet()) {
+                ((IBulkCacheBackend) backend).setMulti(group.getValue(), group.getKey());
+            }
+        } else if (entries.size() == 1 || !(backend instanceof IRemoteCacheBackend)) {
+            for (Map.Entry<Integer, Map<String, Object>> group : toPut.entrySet()) {
+                for (Map.Entry<String, Object> entry : group.getValue().entrySet()) {
+                    backend.set(entry.getKey(), entry.getValue(), group.getKey());
+                }
+            }
+        } else {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>(entries.size());
+            for (Map.Entry<Integer, Map<String, Object>> group : toPut.entrySet()) {
+                final int effectiveTtl = group.getKey();
+                for (final Map.Entry<String, Object> entry : group.getValue().entrySet()) {
+                    futures.add(cacheFanoutExecutor().submit(new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            backend.set(entry.getKey(), entry.getValue(), effectiveTtl);
+                            return null;
+                        }
+                    }));
+                }
+            }
+            waitAll(futures);
+        }
+        for (Map.Entry<Integer, Map<String, Object>> group : toPut.entrySet()) {
+            for (Map.Entry<String, Object> entry : group.getValue().entrySet()) {
+                putToL1Cache(entry.getKey(), entry.getValue(), group.getKey());
+            }
+        }
+    }
+
+    /*--------------------------------------------------------------------------------*/
+    /**
+     * Prefix of cache keys that store namespace generations.
+     * 
+     * @since 0.5.2
+     */
+    public final static String NAMESPACE_KEY_PREFIX = "__ns__:";
+    public final static String CONF_KEY_CACHE_NAMESPACE_L1_TTL = "plommon.cache.namespace.l1Ttl";
+
+    /**
+     * Default time (in seconds) a namespace generation is kept in-process:
+     * {@code 0}, i.e. generations are always read from the backend cache.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_NAMESPACE_L1_TTL = 0;
+
+    private static volatile int namespaceL1Ttl = DEFAULT_NAMESPACE_L1_TTL;
+    private static Cache<String, L1Entry> namespaceGenerations = CacheBuilder.newBuilder()
+            .maximumSize(DEFAULT_L1_MAX_ENTRIES).build();
+
+    /**
+     * Sets how long (in seconds) namespace generations are kept in-process,
+     * i.e. the max delay before an invalidation made by another application
+     * node is seen by this node. {@code 0} reads generations from the backend
+     * cache every time.
+     * 
+     * @param ttl
+     * @since 0.5.2
+     */
+    public static void setNamespaceL1Ttl(int ttl) {
+        namespaceL1Ttl = ttl > 0 ? ttl : 0;
+        namespaceGenerations.invalidateAll();
+    }
+
+    /**
+     * Gets current generation of a cache namespace.
+     * 
+     * <p>
+     * Generations are stored in the backend (L2) cache, without expiry. By
+     * default (i.e. {@code plommon.cache.namespace.l1Ttl=0}) they are read
+     * from there on every call, so an invalidation is seen by all application
+     * nodes at once. With a positive {@code plommon.cache.namespace.l1Ttl},
+     * generations are also kept in-process for that many seconds: invalidations
+     * made by this node are still seen at once, those made by other nodes only
+     * within that window. If the generation entry has been evicted from the
+     * backend cache, a new generation is started, which safely invalidates the
+     * namespace.
+     * </p>
+     * 
+     * @param namespace
+     * @return
+     * @since 0.5.2
+     */
+    protected static long namespaceGeneration(String namespace) {
+        String nsKey = NAMESPACE_KEY_PREFIX + namespace;
+        L1Entry entry = namespaceGenerations.getIfPresent(nsKey);
+        if (entry != null && entry.expireAt > System.currentTimeMillis()) {
+            return ((Long) entry.value).longValue();
+        }
+        Object gen = cacheBackend.get(nsKey);
+        // atomic create-if-absent, so that concurrent callers agree on the
+        // new generation
+        long result = gen instanceof Number ? ((Number) gen).longValue() : cacheBackend
+                .increment(nsKey, 0, System.currentTimeMillis());
+        putNamespaceGeneration(nsKey, result);
+        return result;
+    }
+
+    private static void putNamespaceGeneration(String nsKey, long gen) {
+        int ttl = namespaceL1Ttl;
+        if (ttl > 0) {
+            namespaceGenerations.put(nsKey,
+                    new L1Entry(Long.valueOf(gen), System.currentTimeMillis() + ttl * 1000L));
+        } else {
+            namespaceGenerations.invalidate(nsKey);
+        }
+    }
+
+    /**
+     * Builds the actual cache key of a key within a namespace, which includes
+     * the namespace's current generation. Use the returned key with
+     * {@link #getFromCache(String)}, {@link #putToCache(String, Object, int)},
+     * etc.
+     * 
+     * @param namespace
+     * @param key
+     * @return
+     * @since 0.5.2
+     */
+    protected static String namespacedKey(String namespace, String key) {
+        return namespace + ":" + namespaceGeneration(namespace) + ":" + key;
+    }
+
+    /**
+     * Invalidates all keys of a namespace, in O(1), by bumping the namespace's
+     * generation. Old entries are no longer reachable and simply expire by
+     * their TTL.
+     * 
+     * <p>
+     * The generation is bumped by an atomic increment of the backend cache
+     * (see {@link ICacheBackend#increment(String, long, long)}), so concurrent
+     * invalidations are never lost and generations never go backward.
+     * </p>
+     * 
+     * @param namespace
+     * @since 0.5.2
+     */
+    protected static void invalidateNamespace(String namespace) {
+        String nsKey = NAMESPACE_KEY_PREFIX + namespace;
+        long newGen = cacheBackend.increment(nsKey, 1, System.currentTimeMillis());
+        putNamespaceGeneration(nsKey, newGen);
+    }
+
+    /*--------------------------------------------------------------------------------*/
+    public final static String CONF_KEY_CACHE_NEGATIVE_TTL = "plommon.cache.negativeTtl";
+
+    /**
+     * TTL (in seconds) of "absent" markers put by {@link #getOrLoad}, {@code 0}
+     * disables negative caching.
+     */
+    private static volatile int negativeCacheTtl = 0;
+
+    /**
+     * TTL (in seconds) of "absent" markers for cache policies that enable
+     * negative caching without specifying a TTL (when the global negative TTL
+     * is not set).
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_NEGATIVE_CACHE_TTL = 60;
+
+    /**
+     * Sets TTL of "absent" markers put to cache when a loader of
+     * {@link #getOrLoad(String, int, Callable)} returns {@code null}.
+     * 
+     * @param ttl
+     *            TTL in seconds, {@code 0} disables negative caching
+     * @since 0.5.2
+     */
+    public static void setNegativeCacheTtl(int ttl) {
+        negativeCacheTtl = ttl > 0 ? ttl : 0;
+    }
+
+    /**
+     * Gets TTL of "absent" markers.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static int getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    /**
+     * Gets TTL of "absent" markers of a cache key, taking the matching
+     * {@link CachePolicy} into account.
+     * 
+     * @param key
+     * @return TTL in seconds, {@code 0} means negative caching is disabled for
+     *         the key
+     * @since 0.5.2
+     */
+    protected static int negativeCacheTtl(String key) {
+        CachePolicy policy = getCachePolicy(key);
+        Boolean enabled = policy != null ? policy.getNegativeCache() : null;
+        if (enabled == null) {
+            return negativeCacheTtl;
+        }
+        if (!enabled.booleanValue()) {
+            return 0;
+        }
+        if (policy.getNegativeTtl() > 0) {
+            return policy.getNegativeTtl();
+        }
+        return negativeCacheTtl > 0 ? negativeCacheTtl : DEFAULT_NEGATIVE_CACHE_TTL;
+    }
+
+    /**
+     * Marks an entry as "known missing" in cache (negative caching).
+     * 
+     * @param key
+     * @param ttl
+     *            TTL in seconds, should be short
+     * @since 0.5.2
+     */
+    protected static void putAbsentToCache(String key, int ttl) {
+        putToCache(key, AbsentValue.INSTANCE, ttl);
+    }
+
+    /**
+     * Looks up an entry from cache, telling "not cached" apart from "known
+     * missing" (see {@link #putAbsentToCache(String, int)}).
+     * 
+     * <p>
+     * Note: if the object from cache is not assignable to clazz, the lookup
+     * result is "not cached".
+     * </p>
+     * 
+     * @param key
+     * @param clazz
+     * @return
+     * @since 0.5.2
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T> CacheLookup<T> lookupFromCache(String key, Class<T> clazz) {
+        Object obj = CacheEntry.unwrap(getRawFromCache(key));
+        if (obj instanceof AbsentValue) {
+            return CacheLookup.absent();
+        }
+        if (obj != null && clazz.isAssignableFrom(obj.getClass())) {
+            return CacheLookup.of((T) obj);
+        }
+        return CacheLookup.notCached();
+    }
+
+    /*--------------------------------------------------------------------------------*/
+    private static ConcurrentMap<String, FutureTask<Object>> inflightLoads = new ConcurrentHashMap<String, FutureTask<Object>>();
+
+    /**
+     * Max number of pending background refreshes.
+     * 
+     * @since 0.5.2
+     */
+    public final static int REFRESH_QUEUE_SIZE = 1000;
+
+    private static ExecutorService refreshExecutor;
+
+    synchronized private static ExecutorService refreshExecutor() {
+        if (refreshExecutor == null || refreshExecutor.isShutdown()) {
+            refreshExecutor = new ThreadPoolExecutor(1, 4, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE), new ThreadFactoryBuilder()
+                            .setDaemon(true).setNameFormat("plommon-cache-refresh-%d").build(),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        return refreshExecutor;
+    }
+
+    /**
+     * Stops background threads used by the cache layer (multi-key fan-out and
+     * refresh-ahead). They are re-created on demand.
+     * 
+     * @since 0.5.2
+     */
+    synchronized public static void shutdownCacheExecutors() {
+        if (cacheFanoutExecutor != null) {
+            cacheFanoutExecutor.shutdownNow();
+            cacheFanoutExecutor = null;
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    /**
+     * Keys being loaded by the current thread, to detect re-entrant loads.
+     */
+    private static ThreadLocal<Set<String>> loadingKeys = new ThreadLocal<Set<String>>() {
+        @Override
+        protected Set<String> initialValue() {
+            return new HashSet<String>();
+        }
+    };
+
+    private static FutureTask<Object> newLoadTask(final String key, final int ttl,
+            final int refreshAhead, final Callable<?> loader, final boolean force) {
+        return new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                if (!force) {
+                    // another thread may have just loaded the value
+                    Object cached = getRawFromCache(key);
+                    if (cached != null) {
+                        return unwrapCached(cached);
+                    }
+                }
+                Set<String> keys = loadingKeys.get();
+                keys.add(key);
+                Object value;
+                try {
+                    value = loader.call();
+                } finally {
+                    keys.remove(key);
+                }
+                if (value == null) {
+                    int negativeTtl = negativeCacheTtl(key);
+                    if (negativeTtl > 0) {
+                        putAbsentToCache(key, negativeTtl);
+                    }
+                } else {
+                    // refresh point must be derived from the TTL the entry is
+                    // actually stored with (policy default TTL and jitter applied)
+                    int effectiveTtl = effectiveTtl(key, ttl);
+                    if (refreshAhead > 0 && effectiveTtl > refreshAhead) {
+                        long refreshAt = System.currentTimeMillis()
+                                + (effectiveTtl - refreshAhead) * 1000L;
+                        putToCacheWithEffectiveTtl(key, new CacheEntry(value, refreshAt),
+                                effectiveTtl);
+                    } else {
+                        putToCacheWithEffectiveTtl(key, value, effectiveTtl);
+                    }
+                }
+                return value;
+            }
+        });
+    }
+
+    private static Object loadSingleFlight(String key, int ttl, int refreshAhead,
+            Callable<?> loader) {
+        if (loadingKeys.get().contains(key)) {
+            // waiting for our own in-flight load would block forever
+            throw new IllegalStateException("Re-entrant load of cache key [" + key
+                    + "]: the loader must not call getOrLoad for the same key.");
+        }
+        FutureTask<Object> task = newLoadTask(key, ttl, refreshAhead, loader, false);
+        FutureTask<Object> existing = inflightLoads.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                inflightLoads.remove(key, task);
+            }
+            existing = task;
+        }
+        try {
+            return existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        }
+    }
+
+    private static void refreshInBackground(final String key, int ttl, int refreshAhead,
+            Callable<?> loader) {
+        final FutureTask<Object> task = newLoadTask(key, ttl, refreshAhead, loader, true);
+        if (inflightLoads.putIfAbsent(key, task) == null) {
+            try {
+                refreshExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            inflightLoads.remove(key, task);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // too many pending refreshes: the stale value is served until
+                // the entry expires
+                inflightLoads.remove(key, task);
+            }
+        }
+    }
+
+    /**
+     * Gets an entry from cache; if not found, loads it by the supplied loader
+     * and puts the result to cache.
+     * 
+     * <p>
+     * Concurrent misses for the same key are coalesced: only one caller runs
+     * the loader, the others wait for and share its result. The loader must
+     * not call {@code getOrLoad} for the same key ({@link IllegalStateException}
+     * is thrown).
+     * </p>
+     * 
+     * @param key
+     * @param ttl
+     *            TTL in seconds
+     * @param loader
+     * @return {@code null} if the loader returns {@code null} (which is
+     *         negative-cached if {@link #getNegativeCacheTtl()} is positive)
+     * @since 0.5.2
+     */
+    protected static <T> T getOrLoad(String key, int ttl, Callable<T> loader) {
+        return getOrLoad(key, ttl, 0, loader);
+    }
+
+    /**
+     * Gets an entry from cache; if not found, loads it by the supplied loader
+     * and puts the result to cache.
+     * 
+     * <p>
+     * Concurrent misses for the same key are coalesced: only one caller runs
+     * the loader, the others wait for and share its result. The loader must
+     * not call {@code getOrLoad} for the same key ({@link IllegalStateException}
+     * is thrown).
+     * </p>
+     * 
+     * <p>
+     * If {@code refreshAhead > 0}, the entry is refreshed {@code refreshAhead}
+     * seconds before it expires: the first caller after that point triggers
+     * one background reload, while all callers keep getting the current
+     * (stale) value.
+     * </p>
+     * 
+     * @param key
+     * @param ttl
+     *            TTL in seconds ({@code 0}: the matching {@link CachePolicy}'s
+     *            default TTL, if any)
+     * @param refreshAhead
+     *            seconds before expiry to refresh the entry, {@code 0} to
+     *            disable refresh-ahead (must be less than the effective TTL,
+     *            i.e. after the key's {@link CachePolicy} has been applied)
+     * @param loader
+     * @return {@code null} if the loader returns {@code null} (which is
+     *         negative-cached if {@link #getNegativeCacheTtl()} is positive)
+     * @since 0.5.2
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T> T getOrLoad(String key, int ttl, int refreshAhead, Callable<T> loader) {
+        Object cached = getRawFromCache(key);
+        if (cached instanceof CacheEntry) {
+            CacheEntry entry = (CacheEntry) cached;
+            if (entry.needRefresh()) {
+                refreshInBackground(key, ttl, refreshAhead, loader);
+            }
+            return (T) entry.getValue();
+        }
+        if (cached instanceof AbsentValue) {
+            return null;
+        }
+        if (cached != null) {
+            return (T) cached;
+        }
+        return (T) loadSingleFlight(key, ttl, refreshAhead, loader);
+    }
 }
@@ -10,7 +10,18 @@ public class ProfilingRecord {
 
     public final static ProfilingRecord[] EMPTY_ARRAY = new ProfilingRecord[0];
 
+    /**
+     * Execution time in milliseconds.
+     */
     public long execTime;
+
+    /**
+     * Execution time in nanoseconds.
+     * 
+     * @since 0.5.2
+     */
+    public long execTimeNs;
+
     public String command;
 
     public ProfilingRecord() {
@@ -18,6 +29,21 @@ public class ProfilingRecord {
 
     public ProfilingRecord(long execTime, String command) {
         this.execTime = execTime;
+        this.execTimeNs = execTime * 1000000L;
+        this.command = command;
+    }
+
+    /**
+     * @param execTime
+     *            execution time in milliseconds
+     * @param execTimeNs
+     *            execution time in nanoseconds
+     * @param command
+     * @since 0.5.2
+     */
+    public ProfilingRecord(long execTime, long execTimeNs, String command) {
+        this.execTime = execTime;
+        this.execTimeNs = execTimeNs;
         this.command = command;
     }
 }
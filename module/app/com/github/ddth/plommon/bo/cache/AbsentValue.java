@@ -0,0 +1,32 @@
+package com.github.ddth.plommon.bo.cache;
+
+import java.io.Serializable;
+
+/**
+ * Sentinel cached in place of a value that is known not to exist (negative
+ * caching).
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public final class AbsentValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public final static AbsentValue INSTANCE = new AbsentValue();
+
+    private AbsentValue() {
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "<absent>";
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.ddth.plommon.bo.cache;
+
+import java.io.Serializable;
+
+/**
+ * Wraps a cached value with its refresh time, used by refresh-ahead caching.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object value;
+    private long refreshAt;
+
+    public CacheEntry() {
+    }
+
+    /**
+     * @param value
+     * @param refreshAt
+     *            timestamp (in milliseconds) after which the value should be
+     *            refreshed
+     */
+    public CacheEntry(Object value, long refreshAt) {
+        this.value = value;
+        this.refreshAt = refreshAt;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getRefreshAt() {
+        return refreshAt;
+    }
+
+    /**
+     * Is it time to refresh the value?
+     * 
+     * @return
+     */
+    public boolean needRefresh() {
+        return System.currentTimeMillis() >= refreshAt;
+    }
+
+    /**
+     * Unwraps a cached object: returns the wrapped value if the object is a
+     * {@link CacheEntry}, the object itself otherwise.
+     * 
+     * @param obj
+     * @return
+     */
+    public static Object unwrap(Object obj) {
+        return obj instanceof CacheEntry ? ((CacheEntry) obj).value : obj;
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.ddth.plommon.bo.cache;
+
+/**
+ * Result of a cache lookup, which tells "not cached" apart from "known
+ * missing".
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CacheLookup<T> {
+
+    @SuppressWarnings("rawtypes")
+    private final static CacheLookup NOT_CACHED = new CacheLookup<Object>(false, null);
+
+    @SuppressWarnings("rawtypes")
+    private final static CacheLookup ABSENT = new CacheLookup<Object>(true, null);
+
+    @SuppressWarnings("unchecked")
+    public static <T> CacheLookup<T> notCached() {
+        return NOT_CACHED;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> CacheLookup<T> absent() {
+        return ABSENT;
+    }
+
+    public static <T> CacheLookup<T> of(T value) {
+        return new CacheLookup<T>(true, value);
+    }
+
+    private final boolean cached;
+    private final T value;
+
+    private CacheLookup(boolean cached, T value) {
+        this.cached = cached;
+        this.value = value;
+    }
+
+    /**
+     * Is there an entry (either a value or an "absent" marker) in cache?
+     * 
+     * @return
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Is the entry known to be missing (i.e. an "absent" marker is cached)?
+     * 
+     * @return
+     */
+    public boolean isAbsent() {
+        return cached && value == null;
+    }
+
+    /**
+     * Gets the cached value.
+     * 
+     * @return {@code null} if not cached or known missing
+     */
+    public T getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.ddth.plommon.bo.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit/miss counters of the DAO two-tier cache.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CacheMetrics {
+
+    private final AtomicLong l1Hits = new AtomicLong();
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public void l1Hit() {
+        l1Hits.incrementAndGet();
+    }
+
+    public void l2Hit() {
+        l2Hits.incrementAndGet();
+    }
+
+    public void miss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Number of lookups served by the in-process (L1) cache.
+     * 
+     * @return
+     */
+    public long getL1Hits() {
+        return l1Hits.get();
+    }
+
+    /**
+     * Number of lookups served by the backend (L2) cache.
+     * 
+     * @return
+     */
+    public long getL2Hits() {
+        return l2Hits.get();
+    }
+
+    /**
+     * Number of lookups found in neither L1 nor L2.
+     * 
+     * @return
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Ratio of lookups served by L1.
+     * 
+     * @return
+     */
+    public double getL1HitRate() {
+        long total = l1Hits.get() + l2Hits.get() + misses.get();
+        return total > 0 ? (double) l1Hits.get() / total : 1.0;
+    }
+
+    /**
+     * Ratio of lookups served by either L1 or L2.
+     * 
+     * @return
+     */
+    public double getHitRate() {
+        long hits = l1Hits.get() + l2Hits.get();
+        long total = hits + misses.get();
+        return total > 0 ? (double) hits / total : 1.0;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        l1Hits.set(0);
+        l2Hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "[l1Hits=" + l1Hits.get() + ", l2Hits=" + l2Hits.get() + ", misses="
+                + misses.get() + "]";
+    }
+}
@@ -0,0 +1,205 @@
+package com.github.ddth.plommon.bo.cache;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Caching policy applied to cache keys starting with a specific prefix.
+ * 
+ * <p>
+ * Note: a policy should not be modified after being registered to
+ * {@code BaseDao}.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CachePolicy {
+
+    private final static Random RANDOM = new Random();
+
+    private String prefix;
+    private int ttl = 0;
+    private int jitterPercent = 0;
+    private int l1Ttl = -1;
+    private int l1MaxEntries = 0;
+    private Boolean negativeCache = null;
+    private int negativeTtl = 0;
+
+    public CachePolicy(String prefix) {
+        this.prefix = prefix != null ? prefix : "";
+    }
+
+    /**
+     * Creates a policy from a configuration map, which may contain the
+     * following keys: {@code ttl}, {@code jitter}, {@code l1Ttl},
+     * {@code l1MaxEntries}, {@code negativeCache} and {@code negativeTtl}.
+     * 
+     * @param prefix
+     * @param config
+     * @return
+     */
+    public static CachePolicy fromConfig(String prefix, Map<String, Object> config) {
+        CachePolicy policy = new CachePolicy(prefix);
+        if (config != null) {
+            Object value = config.get("ttl");
+            if (value instanceof Number) {
+                policy.setTtl(((Number) value).intValue());
+            }
+            value = config.get("jitter");
+            if (value instanceof Number) {
+                policy.setJitterPercent(((Number) value).intValue());
+            }
+            value = config.get("l1Ttl");
+            if (value instanceof Number) {
+                policy.setL1Ttl(((Number) value).intValue());
+            }
+            value = config.get("l1MaxEntries");
+            if (value instanceof Number) {
+                policy.setL1MaxEntries(((Number) value).intValue());
+            }
+            value = config.get("negativeCache");
+            if (value instanceof Boolean) {
+                policy.setNegativeCache((Boolean) value);
+            }
+            value = config.get("negativeTtl");
+            if (value instanceof Number) {
+                policy.setNegativeTtl(((Number) value).intValue());
+            }
+        }
+        return policy;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Default TTL (in seconds) of entries that are put to cache without a
+     * specific TTL, {@code 0} means no expiry.
+     * 
+     * @return
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    public CachePolicy setTtl(int ttl) {
+        this.ttl = ttl > 0 ? ttl : 0;
+        return this;
+    }
+
+    /**
+     * TTLs are randomly spread by up to this percentage (plus or minus), so
+     * that entries put at the same time do not expire in lockstep.
+     * 
+     * @return
+     */
+    public int getJitterPercent() {
+        return jitterPercent;
+    }
+
+    public CachePolicy setJitterPercent(int jitterPercent) {
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 100));
+        return this;
+    }
+
+    /**
+     * L1 TTL in seconds, {@code 0} means entries are not cached in L1,
+     * {@code -1} means the global default L1 TTL is used.
+     * 
+     * @return
+     */
+    public int getL1Ttl() {
+        return l1Ttl;
+    }
+
+    public CachePolicy setL1Ttl(int l1Ttl) {
+        this.l1Ttl = l1Ttl >= 0 ? l1Ttl : -1;
+        return this;
+    }
+
+    /**
+     * Max number of L1 entries of this policy, {@code 0} means entries share
+     * the global L1 cache.
+     * 
+     * @return
+     */
+    public int getL1MaxEntries() {
+        return l1MaxEntries;
+    }
+
+    public CachePolicy setL1MaxEntries(int l1MaxEntries) {
+        this.l1MaxEntries = l1MaxEntries > 0 ? l1MaxEntries : 0;
+        return this;
+    }
+
+    /**
+     * Is negative caching enabled? {@code null} means the global setting is
+     * used.
+     * 
+     * @return
+     */
+    public Boolean getNegativeCache() {
+        return negativeCache;
+    }
+
+    public CachePolicy setNegativeCache(Boolean negativeCache) {
+        this.negativeCache = negativeCache;
+        return this;
+    }
+
+    /**
+     * TTL (in seconds) of "absent" markers, {@code 0} means the global
+     * negative TTL is used.
+     * 
+     * @return
+     */
+    public int getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public CachePolicy setNegativeTtl(int negativeTtl) {
+        this.negativeTtl = negativeTtl > 0 ? negativeTtl : 0;
+        return this;
+    }
+
+    /**
+     * Does this policy apply to a cache key?
+     * 
+     * @param key
+     * @return
+     */
+    public boolean matches(String key) {
+        return key.startsWith(prefix);
+    }
+
+    /**
+     * Applies this policy to a TTL: the default TTL is used if {@code ttl} is
+     * not positive, then the jitter is applied.
+     * 
+     * @param ttl
+     * @return
+     */
+    public int effectiveTtl(int ttl) {
+        int result = ttl > 0 ? ttl : this.ttl;
+        if (result > 0 && jitterPercent > 0) {
+            int maxJitter = (int) ((long) result * jitterPercent / 100);
+            if (maxJitter > 0) {
+                int jitter = RANDOM.nextInt(2 * maxJitter + 1) - maxJitter;
+                result = Math.max(1, result + jitter);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "[prefix=" + prefix + ", ttl=" + ttl + ", jitter=" + jitterPercent + "%, l1Ttl="
+                + l1Ttl + ", l1MaxEntries=" + l1MaxEntries + ", negativeCache=" + negativeCache
+                + ", negativeTtl=" + negativeTtl + "]";
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.ddth.plommon.bo.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Backend (L2) cache that supports multi-key operations in one round trip
+ * (e.g. memcached's multi-get).
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IBulkCacheBackend extends ICacheBackend {
+
+    /**
+     * Gets multiple entries from cache.
+     * 
+     * @param keys
+     * @return map of {key:value}; entries that are not found are not included
+     */
+    public Map<String, Object> getMulti(Collection<String> keys);
+
+    /**
+     * Puts multiple entries to cache.
+     * 
+     * @param entries
+     * @param ttl
+     *            TTL in seconds, {@code 0} means no expiry
+     */
+    public void setMulti(Map<String, Object> entries, int ttl);
+}
@@ -0,0 +1,52 @@
+package com.github.ddth.plommon.bo.cache;
+
+/**
+ * Backend (L2) cache used by DAOs.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface ICacheBackend {
+
+    /**
+     * Gets an entry from cache.
+     * 
+     * @param key
+     * @return {@code null} if not found
+     */
+    public Object get(String key);
+
+    /**
+     * Puts an entry to cache.
+     * 
+     * @param key
+     * @param value
+     * @param ttl
+     *            TTL in seconds, {@code 0} means no expiry
+     */
+    public void set(String key, Object value, int ttl);
+
+    /**
+     * Atomically adds {@code delta} to a numeric entry (without expiry). If
+     * the entry does not exist, it is created with value {@code initialValue}
+     * (and {@code delta} is not added).
+     * 
+     * <p>
+     * Remote backends must implement this with the cache server's own atomic
+     * operation (e.g. memcached's {@code incr}/{@code add}).
+     * </p>
+     * 
+     * @param key
+     * @param delta
+     * @param initialValue
+     * @return the entry's new value
+     */
+    public long increment(String key, long delta, long initialValue);
+
+    /**
+     * Removes an entry from cache.
+     * 
+     * @param key
+     */
+    public void remove(String key);
+}
@@ -0,0 +1,18 @@
+package com.github.ddth.plommon.bo.cache;
+
+/**
+ * Marker of backend (L2) caches whose operations cost a network round trip
+ * (e.g. a memcached or Redis client).
+ * 
+ * <p>
+ * Multi-key operations of {@code BaseDao} on such backends, when they are not
+ * {@link IBulkCacheBackend}s, are fanned out as parallel requests; on other
+ * (in-process) backends keys are simply processed one by one in the calling
+ * thread.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IRemoteCacheBackend extends ICacheBackend {
+}
@@ -0,0 +1,61 @@
+package com.github.ddth.plommon.bo.cache;
+
+import play.cache.Cache;
+
+/**
+ * {@link ICacheBackend} that stores entries in Play's cache
+ * ({@link play.cache.Cache}).
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class PlayCacheBackend implements ICacheBackend {
+
+    public final static PlayCacheBackend INSTANCE = new PlayCacheBackend();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(String key) {
+        return Cache.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(String key, Object value, int ttl) {
+        if (ttl > 0) {
+            Cache.set(key, value, ttl);
+        } else {
+            Cache.set(key, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Play's cache has no atomic operations; increments are serialized
+     * in-process, which is sufficient as long as the cache itself is
+     * in-process (Play's default EhCache).
+     * </p>
+     */
+    @Override
+    synchronized public long increment(String key, long delta, long initialValue) {
+        Object value = Cache.get(key);
+        long result = value instanceof Number ? ((Number) value).longValue() + delta
+                : initialValue;
+        Cache.set(key, Long.valueOf(result));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(String key) {
+        Cache.remove(key);
+    }
+}
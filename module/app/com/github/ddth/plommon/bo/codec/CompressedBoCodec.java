@@ -0,0 +1,145 @@
+package com.github.ddth.plommon.bo.codec;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link IBoCodec} that compresses the output of another codec when it is
+ * larger than a threshold.
+ * 
+ * <p>
+ * Compressed data is framed as: 2 magic bytes ({@code 0xFE 'Z'}), the
+ * uncompressed length (4 bytes, big-endian), then the deflated payload
+ * (compression level {@link Deflater#BEST_SPEED}). Data that is below the
+ * threshold is stored as-is; since the magic bytes can start neither JSON nor
+ * Smile data, both forms (and data written without this codec) are decoded
+ * transparently.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CompressedBoCodec implements IBoCodec {
+
+    public final static int DEFAULT_THRESHOLD = 1024;
+
+    private final static byte MAGIC_0 = (byte) 0xFE;
+    private final static byte MAGIC_1 = 'Z';
+    private final static int HEADER_SIZE = 6;
+
+    private final IBoCodec delegate;
+    private final int threshold;
+
+    /**
+     * Constructs a new {@link CompressedBoCodec} with the default threshold
+     * ({@link #DEFAULT_THRESHOLD} bytes).
+     * 
+     * @param delegate
+     */
+    public CompressedBoCodec(IBoCodec delegate) {
+        this(delegate, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new {@link CompressedBoCodec}.
+     * 
+     * @param delegate
+     *            codec that encodes/decodes the uncompressed data
+     * @param threshold
+     *            data of at least this size (in bytes) is compressed
+     */
+    public CompressedBoCodec(IBoCodec delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+    }
+
+    public IBoCodec getDelegate() {
+        return delegate;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Checks if data is compressed by this codec.
+     * 
+     * @param data
+     * @return
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data != null && data.length >= HEADER_SIZE && data[0] == MAGIC_0
+                && data[1] == MAGIC_1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] encode(Map<String, Object> data) {
+        byte[] raw = delegate.encode(data);
+        if (raw == null || raw.length < threshold) {
+            return raw;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[HEADER_SIZE + raw.length];
+            int length = HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    // incompressible data
+                    return raw;
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            buffer[0] = MAGIC_0;
+            buffer[1] = MAGIC_1;
+            buffer[2] = (byte) (raw.length >>> 24);
+            buffer[3] = (byte) (raw.length >>> 16);
+            buffer[4] = (byte) (raw.length >>> 8);
+            buffer[5] = (byte) raw.length;
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> decode(byte[] data) {
+        if (!isCompressed(data)) {
+            return delegate.decode(data);
+        }
+        int rawLength = ((data[2] & 0xFF) << 24) | ((data[3] & 0xFF) << 16)
+                | ((data[4] & 0xFF) << 8) | (data[5] & 0xFF);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new RuntimeException("Corrupted compressed data: expected " + rawLength
+                        + " bytes, got " + length + ".");
+            }
+        } catch (DataFormatException e) {
+            throw new RuntimeException(e);
+        } finally {
+            inflater.end();
+        }
+        return delegate.decode(raw);
+    }
+}
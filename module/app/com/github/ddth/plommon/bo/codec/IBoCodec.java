@@ -0,0 +1,32 @@
+package com.github.ddth.plommon.bo.codec;
+
+import java.util.Map;
+
+/**
+ * Encodes/Decodes BO data (attribute maps) to/from bytes.
+ * 
+ * <p>
+ * Implementations must be thread-safe.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IBoCodec {
+
+    /**
+     * Encodes BO data to bytes.
+     * 
+     * @param data
+     * @return {@code null} if {@code data} is {@code null}
+     */
+    public byte[] encode(Map<String, Object> data);
+
+    /**
+     * Decodes BO data from bytes.
+     * 
+     * @param data
+     * @return {@code null} if {@code data} is {@code null} or empty
+     */
+    public Map<String, Object> decode(byte[] data);
+}
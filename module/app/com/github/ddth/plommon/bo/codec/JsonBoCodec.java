@@ -0,0 +1,50 @@
+package com.github.ddth.plommon.bo.codec;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link IBoCodec} that encodes BO data as JSON (UTF-8).
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class JsonBoCodec implements IBoCodec {
+
+    public final static JsonBoCodec INSTANCE = new JsonBoCodec();
+
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] encode(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsBytes(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Object> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(data, Map.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
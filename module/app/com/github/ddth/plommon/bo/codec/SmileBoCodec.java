@@ -0,0 +1,74 @@
+package com.github.ddth.plommon.bo.codec;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * {@link IBoCodec} that encodes BO data as Smile (Jackson's binary JSON,
+ * http://wiki.fasterxml.com/SmileFormat).
+ * 
+ * <p>
+ * Smile keeps JSON's data model (so BO data round-trips exactly as with
+ * {@link JsonBoCodec}) while being smaller and faster to parse: field names
+ * and short string values are back-referenced, numbers are stored in binary.
+ * Data that does not start with the Smile header (e.g. JSON written by
+ * {@link JsonBoCodec}) is decoded as JSON, so existing data stays readable.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class SmileBoCodec implements IBoCodec {
+
+    public final static SmileBoCodec INSTANCE = new SmileBoCodec();
+
+    private final static ObjectMapper MAPPER = new ObjectMapper(new SmileFactory());
+
+    /**
+     * Checks if data starts with the Smile header ({@code ":)\n"}).
+     * 
+     * @param data
+     * @return
+     */
+    public static boolean isSmile(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == ':' && data[1] == ')'
+                && data[2] == '\n';
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] encode(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsBytes(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Object> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (!isSmile(data)) {
+            return JsonBoCodec.INSTANCE.decode(data);
+        }
+        try {
+            return MAPPER.readValue(data, Map.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.github.ddth.plommon.bo.jdbc;
 
 import java.sql.Connection;
-import java.text.MessageFormat;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -12,14 +16,26 @@ import javax.sql.DataSource;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 
 import play.db.DB;
 
+import com.github.ddth.plommon.bo.BaseBo;
 import com.github.ddth.plommon.bo.BaseDao;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 
 /**
@@ -101,6 +117,335 @@ public class BaseJdbcDao extends BaseDao {
         }
     }
 
+    /*--------------------------------------------------------------------------------*/
+    /**
+     * Max number of generated SQL statements to be cached.
+     * 
+     * @since 0.5.2
+     */
+    public final static int SQL_TEMPLATE_CACHE_SIZE = 4096;
+
+    private final static String SQL_OP_DELETE = "DELETE";
+    private final static String SQL_OP_INSERT = "INSERT";
+    private final static String SQL_OP_UPDATE = "UPDATE";
+
+    private static Cache<SqlTemplateKey, String> cachedSqlTemplates = CacheBuilder.newBuilder()
+            .maximumSize(SQL_TEMPLATE_CACHE_SIZE).recordStats().build();
+
+    /*
+     * Per-thread lookup key, so that cache hits do not allocate a new key
+     * object.
+     */
+    private static ThreadLocal<SqlTemplateKey> sqlTemplateProbes = new ThreadLocal<SqlTemplateKey>() {
+        @Override
+        protected SqlTemplateKey initialValue() {
+            return new SqlTemplateKey();
+        }
+    };
+
+    /**
+     * Gets statistics (hit/miss counters, etc) of the generated SQL cache.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static CacheStats getSqlTemplateCacheStats() {
+        return cachedSqlTemplates.stats();
+    }
+
+    /**
+     * Key of a cached generated SQL statement: (operation, modifier, table,
+     * columns, positions & texts of {@link ParamExpression}s).
+     * 
+     * @since 0.5.2
+     */
+    private static class SqlTemplateKey {
+        private String operation, modifier, tableName;
+        private String[] columns, whereColumns;
+        private Object[] values, whereValues;
+        private int hashCode;
+
+        private static Object shapeOf(Object value) {
+            return value instanceof ParamExpression ? ((ParamExpression) value).getExpression()
+                    : null;
+        }
+
+        private static int shapeHashCode(Object[] values) {
+            if (values == null) {
+                return 0;
+            }
+            int result = 1;
+            for (Object value : values) {
+                Object shape = shapeOf(value);
+                result = 31 * result + (shape != null ? shape.hashCode() : 0);
+            }
+            return result;
+        }
+
+        private static boolean shapeEquals(Object[] a, Object[] b) {
+            if (a == b) {
+                return true;
+            }
+            if (a == null || b == null || a.length != b.length) {
+                return false;
+            }
+            for (int i = 0; i < a.length; i++) {
+                Object shapeA = shapeOf(a[i]);
+                Object shapeB = shapeOf(b[i]);
+                if (shapeA != null ? !shapeA.equals(shapeB) : shapeB != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Copies only the "shape" of a value array: ParamExpressions are kept,
+         * bind values are replaced by null.
+         */
+        private static Object[] copyShape(Object[] values) {
+            if (values == null) {
+                return null;
+            }
+            Object[] result = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = values[i] instanceof ParamExpression ? values[i] : null;
+            }
+            return result;
+        }
+
+        SqlTemplateKey set(String operation, String modifier, String tableName, String[] columns,
+                Object[] values, String[] whereColumns, Object[] whereValues) {
+            this.operation = operation;
+            this.modifier = modifier;
+            this.tableName = tableName;
+            this.columns = columns;
+            this.values = values;
+            this.whereColumns = whereColumns;
+            this.whereValues = whereValues;
+
+            int hash = operation.hashCode();
+            hash = 31 * hash + (modifier != null ? modifier.hashCode() : 0);
+            hash = 31 * hash + (tableName != null ? tableName.hashCode() : 0);
+            hash = 31 * hash + Arrays.hashCode(columns);
+            hash = 31 * hash + shapeHashCode(values);
+            hash = 31 * hash + Arrays.hashCode(whereColumns);
+            hash = 31 * hash + shapeHashCode(whereValues);
+            this.hashCode = hash;
+            return this;
+        }
+
+        SqlTemplateKey clear() {
+            columns = whereColumns = null;
+            values = whereValues = null;
+            return this;
+        }
+
+        SqlTemplateKey immutableCopy() {
+            SqlTemplateKey copy = new SqlTemplateKey();
+            copy.operation = operation;
+            copy.modifier = modifier;
+            copy.tableName = tableName;
+            copy.columns = columns != null ? columns.clone() : null;
+            copy.values = copyShape(values);
+            copy.whereColumns = whereColumns != null ? whereColumns.clone() : null;
+            copy.whereValues = copyShape(whereValues);
+            copy.hashCode = hashCode;
+            return copy;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof SqlTemplateKey)) {
+                return false;
+            }
+            SqlTemplateKey other = (SqlTemplateKey) obj;
+            return hashCode == other.hashCode && operation.equals(other.operation)
+                    && StringUtils.equals(modifier, other.modifier)
+                    && StringUtils.equals(tableName, other.tableName)
+                    && Arrays.equals(columns, other.columns) && shapeEquals(values, other.values)
+                    && Arrays.equals(whereColumns, other.whereColumns)
+                    && shapeEquals(whereValues, other.whereValues);
+        }
+    }
+
+    /**
+     * Is WHERE clause used for the supplied where columns/values?
+     * 
+     * @param whereColumns
+     * @param whereValues
+     * @return
+     * @since 0.5.2
+     */
+    protected static boolean hasWhereClause(String[] whereColumns, Object[] whereValues) {
+        return whereColumns != null && whereColumns.length > 0 && whereValues != null
+                && whereValues.length > 0;
+    }
+
+    private static void appendWhereClause(StringBuilder sql, String[] whereColumns,
+            Object[] whereValues) {
+        sql.append(" WHERE ");
+        for (int i = 0; i < whereColumns.length; i++) {
+            if (i > 0) {
+                sql.append(" AND ");
+            }
+            sql.append('(').append(whereColumns[i]).append('=');
+            if (whereValues[i] instanceof ParamExpression) {
+                sql.append(((ParamExpression) whereValues[i]).getExpression());
+            } else {
+                sql.append('?');
+            }
+            sql.append(')');
+        }
+    }
+
+    private static String buildSql(SqlTemplateKey key) {
+        final StringBuilder sql = new StringBuilder(key.operation);
+        if (key.modifier != null) {
+            sql.append(' ').append(key.modifier);
+        }
+        if (SQL_OP_DELETE.equals(key.operation)) {
+            sql.append(" FROM ").append(key.tableName);
+        } else if (SQL_OP_INSERT.equals(key.operation)) {
+            sql.append(" INTO ").append(key.tableName).append(" (");
+            for (int i = 0; i < key.columns.length; i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append(key.columns[i]);
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < key.values.length; i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                if (key.values[i] instanceof ParamExpression) {
+                    sql.append(((ParamExpression) key.values[i]).getExpression());
+                } else {
+                    sql.append('?');
+                }
+            }
+            sql.append(')');
+        } else {
+            sql.append(' ').append(key.tableName).append(" SET ");
+            for (int i = 0; i < key.columns.length; i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append(key.columns[i]).append('=');
+                if (key.values[i] instanceof ParamExpression) {
+                    sql.append(((ParamExpression) key.values[i]).getExpression());
+                } else {
+                    sql.append('?');
+                }
+            }
+        }
+        if (key.whereColumns != null) {
+            appendWhereClause(sql, key.whereColumns, key.whereValues);
+        }
+        return sql.toString();
+    }
+
+    private static String sqlTemplate(String operation, String modifier, String tableName,
+            String[] columns, Object[] values, String[] whereColumns, Object[] whereValues) {
+        if (hasWhereClause(whereColumns, whereValues)) {
+            if (whereColumns.length != whereValues.length) {
+                throw new IllegalArgumentException(
+                        "Number of whereColumns must be equal to number of whereValues.");
+            }
+        } else {
+            whereColumns = null;
+            whereValues = null;
+        }
+        SqlTemplateKey probe = sqlTemplateProbes.get().set(operation, modifier, tableName,
+                columns, values, whereColumns, whereValues);
+        try {
+            String sql = cachedSqlTemplates.getIfPresent(probe);
+            if (sql == null) {
+                sql = buildSql(probe);
+                cachedSqlTemplates.put(probe.immutableCopy(), sql);
+            }
+            return sql;
+        } finally {
+            probe.clear();
+        }
+    }
+
+    /**
+     * Builds (or gets from cache) a {@code DELETE [modifier] FROM...}
+     * statement.
+     * 
+     * @param modifier
+     *            e.g. {@code IGNORE}, supply {@code null} for no modifier
+     * @param tableName
+     * @param whereColumns
+     *            supply {@code null} to ignore WHERE clause
+     * @param whereValues
+     *            supply {@code null} to ignore WHERE clause
+     * @return
+     * @since 0.5.2
+     */
+    protected static String sqlDelete(String modifier, String tableName, String[] whereColumns,
+            Object[] whereValues) {
+        return sqlTemplate(SQL_OP_DELETE, modifier, tableName, null, null, whereColumns,
+                whereValues);
+    }
+
+    /**
+     * Builds (or gets from cache) an {@code INSERT [modifier] INTO...}
+     * statement.
+     * 
+     * @param modifier
+     *            e.g. {@code IGNORE}, supply {@code null} for no modifier
+     * @param tableName
+     * @param columnNames
+     * @param values
+     * @return
+     * @since 0.5.2
+     */
+    protected static String sqlInsert(String modifier, String tableName, String[] columnNames,
+            Object[] values) {
+        if (columnNames.length != values.length) {
+            throw new IllegalArgumentException(
+                    "Number of columns must be equal to number of values.");
+        }
+        return sqlTemplate(SQL_OP_INSERT, modifier, tableName, columnNames, values, null, null);
+    }
+
+    /**
+     * Builds (or gets from cache) an {@code UPDATE [modifier] ... SET...}
+     * statement.
+     * 
+     * @param modifier
+     *            e.g. {@code IGNORE}, supply {@code null} for no modifier
+     * @param tableName
+     * @param columnNames
+     * @param values
+     * @param whereColumns
+     *            supply {@code null} to ignore WHERE clause
+     * @param whereValues
+     *            supply {@code null} to ignore WHERE clause
+     * @return
+     * @since 0.5.2
+     */
+    protected static String sqlUpdate(String modifier, String tableName, String[] columnNames,
+            Object[] values, String[] whereColumns, Object[] whereValues) {
+        if (columnNames.length != values.length) {
+            throw new IllegalArgumentException(
+                    "Number of columns must be equal to number of values.");
+        }
+        return sqlTemplate(SQL_OP_UPDATE, modifier, tableName, columnNames, values, whereColumns,
+                whereValues);
+    }
+
     /*--------------------------------------------------------------------------------*/
 
     /**
@@ -154,20 +499,15 @@ public class BaseJdbcDao extends BaseDao {
      * @since 0.5.1
      */
     protected static int delete(JdbcTemplate jdbcTemplate, String sql, Object[] whereValues) {
-        long timestampStart = System.currentTimeMillis();
+        long timestampStart = System.nanoTime();
+        boolean error = false;
         try {
-            List<Object> params = new ArrayList<Object>();
-            if (whereValues != null) {
-                for (Object val : whereValues) {
-                    if (!(val instanceof ParamExpression)) {
-                        params.add(val);
-                    }
-                }
-            }
-            return params.size() > 0 ? jdbcTemplate.update(sql, params.toArray()) : jdbcTemplate
-                    .update(sql);
+            return jdbcTemplate.update(sql, paramValuesSetter(whereValues));
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
         } finally {
-            addProfiling(System.currentTimeMillis() - timestampStart, sql);
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
         }
     }
 
@@ -284,33 +624,7 @@ public class BaseJdbcDao extends BaseDao {
      */
     private static int delete(JdbcTemplate jdbcTemplate, String tableName, String[] whereColumns,
             Object[] whereValues) {
-        final String SQL_TEMPLATE_FULL = "DELETE FROM {0} WHERE {1}";
-        final String SQL_TEMPLATE = "DELETE FROM {0}";
-
-        final List<String> WHERE_CLAUSE = new ArrayList<String>();
-        if (whereColumns != null && whereColumns.length > 0 && whereValues != null
-                && whereValues.length > 0) {
-            if (whereColumns.length != whereValues.length) {
-                throw new IllegalArgumentException(
-                        "Number of whereColumns must be equal to number of whereValues.");
-            }
-            for (int i = 0; i < whereColumns.length; i++) {
-                if (whereValues[i] instanceof ParamExpression) {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "="
-                            + ((ParamExpression) whereValues[i]).getExpression() + ")");
-                } else {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "=?)");
-                }
-            }
-        }
-
-        String SQL;
-        if (WHERE_CLAUSE.size() > 0) {
-            SQL = MessageFormat.format(SQL_TEMPLATE_FULL, tableName,
-                    StringUtils.join(WHERE_CLAUSE, " AND "));
-        } else {
-            SQL = MessageFormat.format(SQL_TEMPLATE, tableName);
-        }
+        final String SQL = sqlDelete(null, tableName, whereColumns, whereValues);
         return delete(jdbcTemplate, SQL, whereValues);
     }
 
@@ -365,20 +679,15 @@ public class BaseJdbcDao extends BaseDao {
      * @since 0.5.1
      */
     protected static int insert(JdbcTemplate jdbcTemplate, String sql, Object[] values) {
-        long timestampStart = System.currentTimeMillis();
+        long timestampStart = System.nanoTime();
+        boolean error = false;
         try {
-            List<Object> params = new ArrayList<Object>();
-            if (values != null) {
-                for (Object val : values) {
-                    if (!(val instanceof ParamExpression)) {
-                        params.add(val);
-                    }
-                }
-            }
-            return params.size() > 0 ? jdbcTemplate.update(sql, params.toArray()) : jdbcTemplate
-                    .update(sql);
+            return jdbcTemplate.update(sql, paramValuesSetter(values));
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
         } finally {
-            addProfiling(System.currentTimeMillis() - timestampStart, sql);
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
         }
     }
 
@@ -440,26 +749,255 @@ public class BaseJdbcDao extends BaseDao {
      */
     private static int insert(JdbcTemplate jdbcTemplate, String tableName, String[] columnNames,
             Object[] values) {
-        if (columnNames.length != values.length) {
-            throw new IllegalArgumentException(
-                    "Number of columns must be equal to number of values.");
+        final String SQL = sqlInsert(null, tableName, columnNames, values);
+        return insert(jdbcTemplate, SQL, values);
+    }
+
+    /**
+     * Default number of rows sent in one JDBC batch.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_BATCH_SIZE = 1000;
+
+    private final static RowMapper<Map<String, Object>> COLUMN_MAP_ROW_MAPPER = new ColumnMapRowMapper();
+
+    /**
+     * Binds parameter values to a {@link PreparedStatement}, skipping
+     * {@link ParamExpression}s (which are already inlined into the SQL).
+     * 
+     * @param pstm
+     * @param values
+     * @throws SQLException
+     * @since 0.5.2
+     */
+    protected static void bindParamValues(PreparedStatement pstm, Object[] values)
+            throws SQLException {
+        if (values == null) {
+            return;
         }
-        final String SQL_TEMPLATE = "INSERT INTO {0} ({1}) VALUES ({2})";
-        final String SQL_PART_COLUMNS = StringUtils.join(columnNames, ',');
-        final StringBuilder SQL_PART_VALUES = new StringBuilder();
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] instanceof ParamExpression) {
-                SQL_PART_VALUES.append(((ParamExpression) values[i]).getExpression());
-            } else {
-                SQL_PART_VALUES.append('?');
+        for (int i = 0, index = 1; i < values.length; i++) {
+            Object val = values[i];
+            if (!(val instanceof ParamExpression)) {
+                StatementCreatorUtils.setParameterValue(pstm, index++, SqlTypeValue.TYPE_UNKNOWN,
+                        val);
+            }
+        }
+    }
+
+    /**
+     * {@link PreparedStatementSetter} that binds parameter values directly
+     * from the supplied array, without copying it to filter out
+     * {@link ParamExpression}s.
+     * 
+     * @since 0.5.2
+     */
+    private static class ParamValuesSetter implements PreparedStatementSetter, ParameterDisposer {
+        private Object[] values;
+
+        public ParamValuesSetter(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public void setValues(PreparedStatement pstm) throws SQLException {
+            bindParamValues(pstm, values);
+        }
+
+        @Override
+        public void cleanupParameters() {
+            StatementCreatorUtils.cleanupParameters(values);
+        }
+    }
+
+    /**
+     * Builds a {@link PreparedStatementSetter} for the supplied parameter
+     * values, {@link ParamExpression}s are skipped.
+     * 
+     * @param values
+     * @return {@code null} if there is no value to bind
+     * @since 0.5.2
+     */
+    protected static PreparedStatementSetter paramValuesSetter(Object[] values) {
+        return values != null && values.length > 0 ? new ParamValuesSetter(values) : null;
+    }
+
+    /**
+     * Returns the supplied values with all {@link ParamExpression}s removed.
+     * 
+     * <p>
+     * Note: the supplied array is returned as-is if it contains no
+     * {@link ParamExpression}.
+     * </p>
+     * 
+     * @param values
+     * @return
+     * @since 0.5.2
+     */
+    protected static Object[] removeParamExpressions(Object[] values) {
+        if (values == null) {
+            return ArrayUtils.EMPTY_OBJECT_ARRAY;
+        }
+        int numExprs = 0;
+        for (Object val : values) {
+            if (val instanceof ParamExpression) {
+                numExprs++;
             }
-            if (i < values.length - 1) {
-                SQL_PART_VALUES.append(',');
+        }
+        if (numExprs == 0) {
+            return values;
+        }
+        Object[] result = new Object[values.length - numExprs];
+        for (int i = 0, j = 0; i < values.length; i++) {
+            if (!(values[i] instanceof ParamExpression)) {
+                result[j++] = values[i];
             }
         }
-        final String SQL = MessageFormat.format(SQL_TEMPLATE, tableName, SQL_PART_COLUMNS,
-                SQL_PART_VALUES);
-        return insert(jdbcTemplate, SQL, values);
+        return result;
+    }
+
+    /**
+     * Executes an INSERT statement for multiple rows, using JDBC batch.
+     * 
+     * <p>
+     * Note: all rows must have {@link ParamExpression}s (if any) at the same
+     * positions.
+     * </p>
+     * 
+     * @param jdbcTemplate
+     * @param sql
+     * @param rows
+     * @param batchSize
+     *            max number of rows sent in one JDBC batch
+     * @return number of inserted rows, one element per batch (an element is
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} if the JDBC driver
+     *         does not report the number of affected rows)
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows,
+            int batchSize) {
+        if (rows == null || rows.size() == 0) {
+            return ArrayUtils.EMPTY_INT_ARRAY;
+        }
+        if (batchSize < 1) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+        final int numRows = rows.size();
+        int[] result = new int[(numRows + batchSize - 1) / batchSize];
+        for (int chunk = 0; chunk < result.length; chunk++) {
+            int from = chunk * batchSize;
+            int to = Math.min(from + batchSize, numRows);
+            List<Object[]> batchArgs = new ArrayList<Object[]>(to - from);
+            for (Object[] row : rows.subList(from, to)) {
+                batchArgs.add(removeParamExpressions(row));
+            }
+            long timestampStart = System.nanoTime();
+            boolean error = false;
+            try {
+                int[] rowCounts = jdbcTemplate.batchUpdate(sql, batchArgs);
+                for (int rowCount : rowCounts) {
+                    if (rowCount == Statement.SUCCESS_NO_INFO) {
+                        result[chunk] = Statement.SUCCESS_NO_INFO;
+                        break;
+                    }
+                    result[chunk] += rowCount;
+                }
+            } catch (RuntimeException e) {
+                error = true;
+                throw e;
+            } finally {
+                addProfilingNs(System.nanoTime() - timestampStart, sql, error);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes an INSERT statement for multiple rows, using JDBC batch.
+     * 
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(String tableName, String[] columnNames, List<Object[]> rows) {
+        return insertBatch(DEFAULT_DATASOURCE_NAME, tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an INSERT statement for multiple rows, using JDBC batch.
+     * 
+     * @param datasourceName
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(String datasourceName, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertBatch(jdbcTemplate(datasourceName), tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an INSERT statement for multiple rows, using JDBC batch.
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param conn
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(Connection conn, String tableName, String[] columnNames,
+            List<Object[]> rows) {
+        return insertBatch(jdbcTemplate(conn), tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an INSERT statement for multiple rows, using JDBC batch.
+     * 
+     * @param jdbcTemplate
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(JdbcTemplate jdbcTemplate, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertBatch(null, jdbcTemplate, tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an {@code INSERT [modifier]} statement for multiple rows, using
+     * JDBC batch.
+     * 
+     * @param modifier
+     *            e.g. {@code IGNORE}, supply {@code null} for no modifier
+     * @param jdbcTemplate
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(String modifier, JdbcTemplate jdbcTemplate,
+            String tableName, String[] columnNames, List<Object[]> rows) {
+        if (rows == null || rows.size() == 0) {
+            return ArrayUtils.EMPTY_INT_ARRAY;
+        }
+        for (Object[] row : rows) {
+            if (row == null || row.length != columnNames.length) {
+                throw new IllegalArgumentException(
+                        "Number of columns must be equal to number of values.");
+            }
+        }
+        final String SQL = sqlInsert(modifier, tableName, columnNames, rows.get(0));
+        return insertBatch(jdbcTemplate, SQL, rows, DEFAULT_BATCH_SIZE);
     }
 
     /**
@@ -516,20 +1054,15 @@ public class BaseJdbcDao extends BaseDao {
      */
     protected static List<Map<String, Object>> select(JdbcTemplate jdbcTemplate, String sql,
             Object[] paramValues) {
-        long timestampStart = System.currentTimeMillis();
+        long timestampStart = System.nanoTime();
+        boolean error = false;
         try {
-            List<Object> params = new ArrayList<Object>();
-            if (paramValues != null) {
-                for (Object val : paramValues) {
-                    if (!(val instanceof ParamExpression)) {
-                        params.add(val);
-                    }
-                }
-            }
-            return params.size() > 0 ? jdbcTemplate.queryForList(sql, params.toArray())
-                    : jdbcTemplate.queryForList(sql);
+            return jdbcTemplate.query(sql, paramValuesSetter(paramValues), COLUMN_MAP_ROW_MAPPER);
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
         } finally {
-            addProfiling(System.currentTimeMillis() - timestampStart, sql);
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
         }
     }
 
@@ -615,6 +1148,253 @@ public class BaseJdbcDao extends BaseDao {
         return select(jdbcTemplate, sql.toString(), paramValues);
     }
 
+    /**
+     * Default fetch size used by streaming SELECT statements.
+     * 
+     * <p>
+     * Note: {@link BaseMysqlDao}'s {@code selectStream} overloads without a
+     * fetch size use {@link BaseMysqlDao#FETCH_SIZE_STREAMING} instead.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Creates a forward-only, read-only {@link PreparedStatement} with a
+     * specific fetch size.
+     * 
+     * @since 0.5.2
+     */
+    private static class StreamingStatementCreator implements PreparedStatementCreator,
+            SqlProvider {
+        private String sql;
+        private Object[] params;
+        private int fetchSize;
+
+        public StreamingStatementCreator(String sql, Object[] params, int fetchSize) {
+            this.sql = sql;
+            this.params = params;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+            PreparedStatement pstm = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize != 0) {
+                pstm.setFetchSize(fetchSize);
+            }
+            bindParamValues(pstm, params);
+            return pstm;
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}. Rows are not materialized in memory.
+     * 
+     * @param sql
+     * @param paramValues
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(String sql, Object[] paramValues, IRowHandler rowHandler) {
+        return selectStream(DEFAULT_DATASOURCE_NAME, sql, paramValues, rowHandler);
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}. Rows are not materialized in memory.
+     * 
+     * @param datasourceName
+     * @param sql
+     * @param paramValues
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(String datasourceName, String sql, Object[] paramValues,
+            IRowHandler rowHandler) {
+        return selectStream(jdbcTemplate(datasourceName), sql, paramValues, DEFAULT_FETCH_SIZE,
+                rowHandler);
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}. Rows are not materialized in memory.
+     * 
+     * @param datasourceName
+     * @param sql
+     * @param paramValues
+     * @param fetchSize
+     *            number of rows fetched per round trip, {@code 0} to use the
+     *            JDBC driver's default
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(String datasourceName, String sql, Object[] paramValues,
+            int fetchSize, IRowHandler rowHandler) {
+        return selectStream(jdbcTemplate(datasourceName), sql, paramValues, fetchSize, rowHandler);
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}. Rows are not materialized in memory.
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param conn
+     * @param sql
+     * @param paramValues
+     * @param fetchSize
+     *            number of rows fetched per round trip, {@code 0} to use the
+     *            JDBC driver's default
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(Connection conn, String sql, Object[] paramValues,
+            int fetchSize, IRowHandler rowHandler) {
+        return selectStream(jdbcTemplate(conn), sql, paramValues, fetchSize, rowHandler);
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}. Rows are not materialized in memory.
+     * 
+     * <p>
+     * The statement is executed with a forward-only, read-only cursor. Note
+     * that some JDBC drivers need a special fetch size to actually stream
+     * rows (e.g. MySQL's Connector/J needs {@link Integer#MIN_VALUE}, see
+     * {@link BaseMysqlDao#FETCH_SIZE_STREAMING}).
+     * </p>
+     * 
+     * @param jdbcTemplate
+     * @param sql
+     * @param paramValues
+     * @param fetchSize
+     *            number of rows fetched per round trip, {@code 0} to use the
+     *            JDBC driver's default
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(JdbcTemplate jdbcTemplate, String sql,
+            Object[] paramValues, int fetchSize, final IRowHandler rowHandler) {
+        long timestampStart = System.nanoTime();
+        boolean error = false;
+        try {
+            PreparedStatementCreator psc = new StreamingStatementCreator(sql, paramValues,
+                    fetchSize);
+            Long result = jdbcTemplate.query(psc, new ResultSetExtractor<Long>() {
+                @Override
+                public Long extractData(ResultSet rs) throws SQLException {
+                    RowMapper<Map<String, Object>> rowMapper = new ColumnMapRowMapper();
+                    int rowNum = 0;
+                    while (rs.next()) {
+                        Map<String, Object> row = rowMapper.mapRow(rs, rowNum);
+                        rowNum++;
+                        if (!rowHandler.handleRow(row, rowNum - 1)) {
+                            break;
+                        }
+                    }
+                    return Long.valueOf(rowNum);
+                }
+            });
+            return result != null ? result.longValue() : 0;
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
+        } finally {
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
+        }
+    }
+
+    /**
+     * Executes a SELECT statement and maps result rows directly into BOs.
+     * 
+     * @param clazz
+     * @param sql
+     * @param paramValues
+     * @return
+     * @since 0.5.2
+     */
+    protected static <T extends BaseBo> List<T> selectAs(Class<T> clazz, String sql,
+            Object[] paramValues) {
+        return selectAs(clazz, DEFAULT_DATASOURCE_NAME, sql, paramValues);
+    }
+
+    /**
+     * Executes a SELECT statement and maps result rows directly into BOs.
+     * 
+     * @param clazz
+     * @param datasourceName
+     * @param sql
+     * @param paramValues
+     * @return
+     * @since 0.5.2
+     */
+    protected static <T extends BaseBo> List<T> selectAs(Class<T> clazz, String datasourceName,
+            String sql, Object[] paramValues) {
+        return selectAs(clazz, jdbcTemplate(datasourceName), sql, paramValues);
+    }
+
+    /**
+     * Executes a SELECT statement and maps result rows directly into BOs.
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param clazz
+     * @param conn
+     * @param sql
+     * @param paramValues
+     * @return
+     * @since 0.5.2
+     */
+    protected static <T extends BaseBo> List<T> selectAs(Class<T> clazz, Connection conn,
+            String sql, Object[] paramValues) {
+        return selectAs(clazz, jdbcTemplate(conn), sql, paramValues);
+    }
+
+    /**
+     * Executes a SELECT statement and maps result rows directly into BOs.
+     * 
+     * <p>
+     * Each row is read once from the {@link ResultSet} straight into the BO's
+     * attribute storage, using a column plan cached per (SQL, BO class) (see
+     * {@link BoRowMapper}). The BO class must have a no-arg constructor.
+     * </p>
+     * 
+     * @param clazz
+     * @param jdbcTemplate
+     * @param sql
+     * @param paramValues
+     * @return
+     * @since 0.5.2
+     */
+    protected static <T extends BaseBo> List<T> selectAs(Class<T> clazz,
+            JdbcTemplate jdbcTemplate, String sql, Object[] paramValues) {
+        long timestampStart = System.nanoTime();
+        boolean error = false;
+        try {
+            BoRowMapper<T> rowMapper = new BoRowMapper<T>(clazz, sql);
+            return jdbcTemplate.query(sql, paramValuesSetter(paramValues), rowMapper);
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
+        } finally {
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
+        }
+    }
+
     /**
      * Executes a UPDATE statement.
      * 
@@ -666,20 +1446,15 @@ public class BaseJdbcDao extends BaseDao {
      * @since 0.5.1
      */
     protected static int update(JdbcTemplate jdbcTemplate, String sql, Object[] paramValues) {
-        long timestampStart = System.currentTimeMillis();
+        long timestampStart = System.nanoTime();
+        boolean error = false;
         try {
-            List<Object> params = new ArrayList<Object>();
-            if (paramValues != null) {
-                for (Object val : paramValues) {
-                    if (!(val instanceof ParamExpression)) {
-                        params.add(val);
-                    }
-                }
-            }
-            return params.size() > 0 ? jdbcTemplate.update(sql, params.toArray()) : jdbcTemplate
-                    .update(sql);
+            return jdbcTemplate.update(sql, paramValuesSetter(paramValues));
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
         } finally {
-            addProfiling(System.currentTimeMillis() - timestampStart, sql);
+            addProfilingNs(System.nanoTime() - timestampStart, sql, error);
         }
     }
 
@@ -820,52 +1595,118 @@ public class BaseJdbcDao extends BaseDao {
      */
     private static int update(JdbcTemplate jdbcTemplate, String tableName, String[] columnNames,
             Object[] values, String[] whereColumns, Object[] whereValues) {
-        final String SQL_TEMPLATE_FULL = "UPDATE {0} SET {1} WHERE {2}";
-        final String SQL_TEMPLATE = "UPDATE {0} SET {1}";
+        final String SQL = sqlUpdate(null, tableName, columnNames, values, whereColumns,
+                whereValues);
+        final Object[] PARAM_VALUES = hasWhereClause(whereColumns, whereValues) ? ArrayUtils
+                .addAll(values, whereValues) : values;
+        return update(jdbcTemplate, SQL, PARAM_VALUES);
+    }
 
-        if (columnNames.length != values.length) {
-            throw new IllegalArgumentException(
-                    "Number of columns must be equal to number of values.");
-        }
-        final List<String> UPDATE_CLAUSE = new ArrayList<String>();
-        for (int i = 0; i < columnNames.length; i++) {
-            if (values[i] instanceof ParamExpression) {
-                UPDATE_CLAUSE.add(columnNames[i] + "="
-                        + ((ParamExpression) values[i]).getExpression());
-            } else {
-                UPDATE_CLAUSE.add(columnNames[i] + "=?");
-            }
-        }
+    /**
+     * Executes a UPDATE statement that writes only the modified attributes of
+     * a BO (see {@link BaseBo#getDirtyAttributes()}); attribute names are used
+     * as column names.
+     * 
+     * <p>
+     * No statement is executed if none of the candidate columns is dirty.
+     * Note: the BO is not marked clean by this method.
+     * </p>
+     * 
+     * @param tableName
+     * @param bo
+     * @param columnNames
+     *            candidate columns, supply {@code null} to write all dirty
+     *            attributes
+     * @param whereColumns
+     * @param whereValues
+     * @return number of affected rows ({@code 0} if nothing was written)
+     * @since 0.5.2
+     */
+    protected static int updateDirty(String tableName, BaseBo bo, String[] columnNames,
+            String[] whereColumns, Object[] whereValues) {
+        return updateDirty(DEFAULT_DATASOURCE_NAME, tableName, bo, columnNames, whereColumns,
+                whereValues);
+    }
 
-        final List<String> WHERE_CLAUSE = new ArrayList<String>();
-        if (whereColumns != null && whereColumns.length > 0 && whereValues != null
-                && whereValues.length > 0) {
-            if (whereColumns.length != whereValues.length) {
-                throw new IllegalArgumentException(
-                        "Number of whereColumns must be equal to number of whereValues.");
-            }
-            for (int i = 0; i < whereColumns.length; i++) {
-                if (whereValues[i] instanceof ParamExpression) {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "="
-                            + ((ParamExpression) whereValues[i]).getExpression() + ")");
-                } else {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "=?)");
+    /**
+     * Executes a UPDATE statement that writes only the modified attributes of
+     * a BO (see {@link BaseBo#getDirtyAttributes()}); attribute names are used
+     * as column names.
+     * 
+     * <p>
+     * No statement is executed if none of the candidate columns is dirty.
+     * Note: the BO is not marked clean by this method.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param tableName
+     * @param bo
+     * @param columnNames
+     *            candidate columns, supply {@code null} to write all dirty
+     *            attributes
+     * @param whereColumns
+     * @param whereValues
+     * @return number of affected rows ({@code 0} if nothing was written)
+     * @since 0.5.2
+     */
+    protected static int updateDirty(String datasourceName, String tableName, BaseBo bo,
+            String[] columnNames, String[] whereColumns, Object[] whereValues) {
+        return updateDirty(jdbcTemplate(datasourceName), tableName, bo, columnNames,
+                whereColumns, whereValues);
+    }
+
+    /**
+     * Executes a UPDATE statement that writes only the modified attributes of
+     * a BO (see {@link BaseBo#getDirtyAttributes()}); attribute names are used
+     * as column names.
+     * 
+     * <p>
+     * No statement is executed if none of the candidate columns is dirty.
+     * Note: the BO is not marked clean by this method.
+     * </p>
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param conn
+     * @param tableName
+     * @param bo
+     * @param columnNames
+     *            candidate columns, supply {@code null} to write all dirty
+     *            attributes
+     * @param whereColumns
+     * @param whereValues
+     * @return number of affected rows ({@code 0} if nothing was written)
+     * @since 0.5.2
+     */
+    protected static int updateDirty(Connection conn, String tableName, BaseBo bo,
+            String[] columnNames, String[] whereColumns, Object[] whereValues) {
+        return updateDirty(jdbcTemplate(conn), tableName, bo, columnNames, whereColumns,
+                whereValues);
+    }
+
+    private static int updateDirty(JdbcTemplate jdbcTemplate, String tableName, BaseBo bo,
+            String[] columnNames, String[] whereColumns, Object[] whereValues) {
+        Map<String, Object> dirtyAttrs = bo.getDirtyAttributes();
+        List<String> updateColumns = new ArrayList<String>();
+        List<Object> updateValues = new ArrayList<Object>();
+        if (columnNames != null) {
+            for (String column : columnNames) {
+                if (dirtyAttrs.containsKey(column)) {
+                    updateColumns.add(column);
+                    updateValues.add(dirtyAttrs.get(column));
                 }
             }
-        }
-
-        String SQL;
-        Object[] PARAM_VALUES;
-        if (WHERE_CLAUSE.size() > 0) {
-            SQL = MessageFormat.format(SQL_TEMPLATE_FULL, tableName,
-                    StringUtils.join(UPDATE_CLAUSE, ','), StringUtils.join(WHERE_CLAUSE, " AND "));
-            PARAM_VALUES = ArrayUtils.addAll(values, whereValues);
         } else {
-            SQL = MessageFormat.format(SQL_TEMPLATE, tableName,
-                    StringUtils.join(UPDATE_CLAUSE, ','));
-            PARAM_VALUES = values;
+            for (Map.Entry<String, Object> entry : dirtyAttrs.entrySet()) {
+                updateColumns.add(entry.getKey());
+                updateValues.add(entry.getValue());
+            }
         }
-        return update(jdbcTemplate, SQL, PARAM_VALUES);
+        if (updateColumns.size() == 0) {
+            return 0;
+        }
+        return update(jdbcTemplate, tableName, updateColumns.toArray(new String[0]),
+                updateValues.toArray(), whereColumns, whereValues);
     }
 
     /*--------------------------------------------------------------------------------*/
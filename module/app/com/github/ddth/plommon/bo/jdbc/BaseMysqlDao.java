@@ -1,7 +1,6 @@
 package com.github.ddth.plommon.bo.jdbc;
 
 import java.sql.Connection;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +38,63 @@ public class BaseMysqlDao extends BaseJdbcDao {
         IGNORE, LOW_PRIORITY
     }
 
+    /**
+     * Fetch size that tells MySQL's Connector/J to stream result rows one by
+     * one (see {@link #selectStream(JdbcTemplate, String, Object[], int, IRowHandler)}).
+     * 
+     * <p>
+     * Note: positive fetch sizes are only honoured by Connector/J when
+     * {@code useCursorFetch=true} is set in the JDBC url; otherwise the whole
+     * result set is loaded into memory.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    public final static int FETCH_SIZE_STREAMING = Integer.MIN_VALUE;
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}, using {@link #FETCH_SIZE_STREAMING} so that
+     * Connector/J does not load the whole result set into memory.
+     * 
+     * <p>
+     * Note: while rows are being streamed, no other statement can be executed
+     * on the same connection.
+     * </p>
+     * 
+     * @param sql
+     * @param paramValues
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(String sql, Object[] paramValues, IRowHandler rowHandler) {
+        return selectStream(DEFAULT_DATASOURCE_NAME, sql, paramValues, rowHandler);
+    }
+
+    /**
+     * Executes a SELECT statement and streams the result rows, one by one, to
+     * a {@link IRowHandler}, using {@link #FETCH_SIZE_STREAMING} so that
+     * Connector/J does not load the whole result set into memory.
+     * 
+     * <p>
+     * Note: while rows are being streamed, no other statement can be executed
+     * on the same connection.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param sql
+     * @param paramValues
+     * @param rowHandler
+     * @return number of rows processed
+     * @since 0.5.2
+     */
+    protected static long selectStream(String datasourceName, String sql, Object[] paramValues,
+            IRowHandler rowHandler) {
+        return selectStream(jdbcTemplate(datasourceName), sql, paramValues,
+                FETCH_SIZE_STREAMING, rowHandler);
+    }
+
     /**
      * Executes a DELETE IGNORE statement (without WHERE clause).
      * 
@@ -388,42 +444,9 @@ public class BaseMysqlDao extends BaseJdbcDao {
      */
     private static int deleteEx(ExDelete ex, JdbcTemplate jdbcTemplate, String tableName,
             String[] whereColumns, Object[] whereValues) {
-        final String SQL_TEMPLATE_FULL_IGNORE = "DELETE IGNORE FROM {0} WHERE {1}";
-        final String SQL_TEMPLATE_IGNORE = "DELETE IGNORE FROM {0}";
-        final String SQL_TEMPLATE_FULL_LOW_PRIORITY = "DELETE LOW_PRIORITY FROM {0} WHERE {1}";
-        final String SQL_TEMPLATE_LOW_PRIORITY = "DELETE LOW_PRIORITY FROM {0}";
-        final String SQL_TEMPLATE_FULL_QUICK = "DELETE QUICK FROM {0} WHERE {1}";
-        final String SQL_TEMPLATE_QUICK = "DELETE QUICK FROM {0}";
-
-        final String SQL_TEMPLATE_FULL = ex == ExDelete.IGNORE ? SQL_TEMPLATE_FULL_IGNORE
-                : (ex == ExDelete.QUICK ? SQL_TEMPLATE_FULL_QUICK : SQL_TEMPLATE_FULL_LOW_PRIORITY);
-        final String SQL_TEMPLATE = ex == ExDelete.IGNORE ? SQL_TEMPLATE_IGNORE
-                : (ex == ExDelete.QUICK ? SQL_TEMPLATE_QUICK : SQL_TEMPLATE_LOW_PRIORITY);
-
-        final List<String> WHERE_CLAUSE = new ArrayList<String>();
-        if (whereColumns != null && whereColumns.length > 0 && whereValues != null
-                && whereValues.length > 0) {
-            if (whereColumns.length != whereValues.length) {
-                throw new IllegalArgumentException(
-                        "Number of whereColumns must be equal to number of whereValues.");
-            }
-            for (int i = 0; i < whereColumns.length; i++) {
-                if (whereValues[i] instanceof ParamExpression) {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "="
-                            + ((ParamExpression) whereValues[i]).getExpression() + ")");
-                } else {
-                    WHERE_CLAUSE.add("(" + whereColumns[i] + "=?)");
-                }
-            }
-        }
-
-        String SQL;
-        if (WHERE_CLAUSE.size() > 0) {
-            SQL = MessageFormat.format(SQL_TEMPLATE_FULL, tableName,
-                    StringUtils.join(WHERE_CLAUSE, " AND "));
-        } else {
-            SQL = MessageFormat.format(SQL_TEMPLATE, tableName);
-        }
+        // a null modifier falls back to LOW_PRIORITY, as it always has
+        final String MODIFIER = (ex != null ? ex : ExDelete.LOW_PRIORITY).name();
+        final String SQL = sqlDelete(MODIFIER, tableName, whereColumns, whereValues);
         return delete(jdbcTemplate, SQL, whereValues);
     }
 
@@ -612,31 +635,252 @@ public class BaseMysqlDao extends BaseJdbcDao {
      */
     private static int insertEx(ExInsert ex, JdbcTemplate jdbcTemplate, String tableName,
             String[] columnNames, Object[] values) {
-        if (columnNames.length != values.length) {
-            throw new IllegalArgumentException(
-                    "Number of columns must be equal to number of values.");
+        // a null modifier falls back to LOW_PRIORITY, as it always has
+        final String MODIFIER = (ex != null ? ex : ExInsert.LOW_PRIORITY).name();
+        final String SQL = sqlInsert(MODIFIER, tableName, columnNames, values);
+        return insert(jdbcTemplate, SQL, values);
+    }
+
+    /**
+     * Default value of MySQL's {@code max_allowed_packet} (in bytes), used to
+     * size multi-row INSERT statements.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_MAX_ALLOWED_PACKET = 1024 * 1024;
+
+    /*
+     * Max number of placeholders in a server-side prepared statement.
+     */
+    private final static int MAX_PLACEHOLDERS = 65535;
+
+    /**
+     * Executes an {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED]} statement for
+     * multiple rows, using JDBC batch.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param datasourceName
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(ExInsert ex, String datasourceName, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertBatch(ex, jdbcTemplate(datasourceName), tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED]} statement for
+     * multiple rows, using JDBC batch.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param conn
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(ExInsert ex, Connection conn, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertBatch(ex, jdbcTemplate(conn), tableName, columnNames, rows);
+    }
+
+    /**
+     * Executes an {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED]} statement for
+     * multiple rows, using JDBC batch.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param jdbcTemplate
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per batch
+     * @since 0.5.2
+     */
+    protected static int[] insertBatch(ExInsert ex, JdbcTemplate jdbcTemplate, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertBatch(ex != null ? ex.name() : null, jdbcTemplate, tableName, columnNames,
+                rows);
+    }
+
+    /**
+     * Executes multi-row {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED] ... VALUES
+     * (...),(...)} statements. Rows are split into chunks so that each
+     * statement stays under {@link #DEFAULT_MAX_ALLOWED_PACKET}.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param datasourceName
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @return number of inserted rows, one element per chunk
+     * @since 0.5.2
+     */
+    protected static int[] insertMultiValues(ExInsert ex, String datasourceName, String tableName,
+            String[] columnNames, List<Object[]> rows) {
+        return insertMultiValues(ex, jdbcTemplate(datasourceName), tableName, columnNames, rows,
+                DEFAULT_MAX_ALLOWED_PACKET);
+    }
+
+    /**
+     * Executes multi-row {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED] ... VALUES
+     * (...),(...)} statements. Rows are split into chunks so that each
+     * statement stays under {@code maxAllowedPacket}.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param datasourceName
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @param maxAllowedPacket
+     *            server's {@code max_allowed_packet} value (in bytes)
+     * @return number of inserted rows, one element per chunk
+     * @since 0.5.2
+     */
+    protected static int[] insertMultiValues(ExInsert ex, String datasourceName, String tableName,
+            String[] columnNames, List<Object[]> rows, int maxAllowedPacket) {
+        return insertMultiValues(ex, jdbcTemplate(datasourceName), tableName, columnNames, rows,
+                maxAllowedPacket);
+    }
+
+    /**
+     * Executes multi-row {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED] ... VALUES
+     * (...),(...)} statements. Rows are split into chunks so that each
+     * statement stays under {@code maxAllowedPacket}.
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param conn
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @param maxAllowedPacket
+     *            server's {@code max_allowed_packet} value (in bytes)
+     * @return number of inserted rows, one element per chunk
+     * @since 0.5.2
+     */
+    protected static int[] insertMultiValues(ExInsert ex, Connection conn, String tableName,
+            String[] columnNames, List<Object[]> rows, int maxAllowedPacket) {
+        return insertMultiValues(ex, jdbcTemplate(conn), tableName, columnNames, rows,
+                maxAllowedPacket);
+    }
+
+    /**
+     * Executes multi-row {@code INSERT [IGNORE|LOW_PRIORITY|DELAYED] ... VALUES
+     * (...),(...)} statements. Rows are split into chunks so that each
+     * statement stays under {@code maxAllowedPacket}.
+     * 
+     * <p>
+     * Note: all rows must have {@link ParamExpression}s (if any) at the same
+     * positions.
+     * </p>
+     * 
+     * @param ex
+     *            supply {@code null} for a plain INSERT statement
+     * @param jdbcTemplate
+     * @param tableName
+     * @param columnNames
+     * @param rows
+     * @param maxAllowedPacket
+     *            server's {@code max_allowed_packet} value (in bytes)
+     * @return number of inserted rows, one element per chunk
+     * @since 0.5.2
+     */
+    protected static int[] insertMultiValues(ExInsert ex, JdbcTemplate jdbcTemplate,
+            String tableName, String[] columnNames, List<Object[]> rows, int maxAllowedPacket) {
+        if (rows == null || rows.size() == 0) {
+            return ArrayUtils.EMPTY_INT_ARRAY;
         }
-        final String SQL_TEMPLATE_DELAYED = "INSERT DELAYED INTO {0} ({1}) VALUES ({2})";
-        final String SQL_TEMPLATE_IGNORE = "INSERT IGNORE INTO {0} ({1}) VALUES ({2})";
-        final String SQL_TEMPLATE_LOW_PRIORITY = "INSERT LOW_PRIORITY INTO {0} ({1}) VALUES ({2})";
-
-        final String SQL_TEMPLATE = ex == ExInsert.DELAYED ? SQL_TEMPLATE_DELAYED
-                : (ex == ExInsert.IGNORE ? SQL_TEMPLATE_IGNORE : SQL_TEMPLATE_LOW_PRIORITY);
-        final String SQL_PART_COLUMNS = StringUtils.join(columnNames, ',');
-        final StringBuilder SQL_PART_VALUES = new StringBuilder();
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] instanceof ParamExpression) {
-                SQL_PART_VALUES.append(((ParamExpression) values[i]).getExpression());
-            } else {
-                SQL_PART_VALUES.append('?');
+        for (Object[] row : rows) {
+            if (row == null || row.length != columnNames.length) {
+                throw new IllegalArgumentException(
+                        "Number of columns must be equal to number of values.");
+            }
+        }
+        if (maxAllowedPacket < 1) {
+            maxAllowedPacket = DEFAULT_MAX_ALLOWED_PACKET;
+        }
+
+        // split "INSERT ... (cols) VALUES (?,?)" into statement prefix and
+        // row template
+        final String SQL_SINGLE_ROW = sqlInsert(ex != null ? ex.name() : null, tableName,
+                columnNames, rows.get(0));
+        final int pos = SQL_SINGLE_ROW.indexOf(") VALUES (") + ") VALUES ".length();
+        final String SQL_PREFIX = SQL_SINGLE_ROW.substring(0, pos);
+        final String SQL_ROW = SQL_SINGLE_ROW.substring(pos);
+        final int numPlaceholders = Math.max(1, removeParamExpressions(rows.get(0)).length);
+        final int maxRowsPerStm = Math.max(1, MAX_PLACEHOLDERS / numPlaceholders);
+        // leave some room for packet headers and value escaping
+        final long packetBudget = maxAllowedPacket * 9L / 10;
+
+        final List<Integer> result = new ArrayList<Integer>();
+        final int numRows = rows.size();
+        int from = 0;
+        while (from < numRows) {
+            long size = SQL_PREFIX.length();
+            int to = from;
+            while (to < numRows && to - from < maxRowsPerStm) {
+                long rowSize = SQL_ROW.length() + 1 + estimateSize(rows.get(to));
+                if (to > from && size + rowSize > packetBudget) {
+                    break;
+                }
+                size += rowSize;
+                to++;
+            }
+
+            StringBuilder sql = new StringBuilder((int) Math.min(size, Integer.MAX_VALUE));
+            sql.append(SQL_PREFIX);
+            List<Object> params = new ArrayList<Object>((to - from) * numPlaceholders);
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    sql.append(',');
+                }
+                sql.append(SQL_ROW);
+                for (Object val : rows.get(i)) {
+                    if (!(val instanceof ParamExpression)) {
+                        params.add(val);
+                    }
+                }
             }
-            if (i < values.length - 1) {
-                SQL_PART_VALUES.append(',');
+            result.add(insert(jdbcTemplate, sql.toString(), params.toArray()));
+            from = to;
+        }
+        return ArrayUtils.toPrimitive(result.toArray(new Integer[result.size()]));
+    }
+
+    /*
+     * Estimates the number of bytes a row's values take once inlined into a
+     * statement.
+     */
+    private static long estimateSize(Object[] values) {
+        long size = 0;
+        for (Object val : values) {
+            if (val == null || val instanceof ParamExpression) {
+                size += 4;
+            } else if (val instanceof CharSequence) {
+                // quotes, escaping and multi-byte chars
+                size += ((CharSequence) val).length() * 2 + 2;
+            } else if (val instanceof byte[]) {
+                size += ((byte[]) val).length * 2 + 3;
+            } else if (val instanceof Number || val instanceof Boolean) {
+                size += 20;
+            } else if (val instanceof java.util.Date) {
+                size += 32;
+            } else {
+                size += val.toString().length() * 2 + 2;
             }
         }
-        final String SQL = MessageFormat.format(SQL_TEMPLATE, tableName, SQL_PART_COLUMNS,
-                SQL_PART_VALUES);
-        return insert(jdbcTemplate, SQL, values);
+        return size;
     }
 
     /**
@@ -735,6 +979,209 @@ public class BaseMysqlDao extends BaseJdbcDao {
         return select(jdbcTemplate, sql.toString(), paramValues);
     }
 
+    /**
+     * Executes a simple SELECT statement with keyset (seek) pagination.
+     * 
+     * @param table
+     * @param columns
+     * @param whereClause
+     * @param paramValues
+     * @param keyColumns
+     * @param lastKeyValues
+     * @param pageSize
+     * @return
+     * @since 0.5.2
+     */
+    protected static KeysetPage selectPage(String table, String[][] columns, String whereClause,
+            Object[] paramValues, String[] keyColumns, Object[] lastKeyValues, int pageSize) {
+        return selectPage(DEFAULT_DATASOURCE_NAME, table, columns, whereClause, paramValues,
+                keyColumns, lastKeyValues, pageSize);
+    }
+
+    /**
+     * Executes a simple SELECT statement with keyset (seek) pagination.
+     * 
+     * @param datasourceName
+     * @param table
+     * @param columns
+     * @param whereClause
+     * @param paramValues
+     * @param keyColumns
+     * @param lastKeyValues
+     * @param pageSize
+     * @return
+     * @since 0.5.2
+     */
+    protected static KeysetPage selectPage(String datasourceName, String table,
+            String[][] columns, String whereClause, Object[] paramValues, String[] keyColumns,
+            Object[] lastKeyValues, int pageSize) {
+        return selectPage(jdbcTemplate(datasourceName), table, columns, whereClause, paramValues,
+                keyColumns, lastKeyValues, pageSize);
+    }
+
+    /**
+     * Executes a simple SELECT statement with keyset (seek) pagination.
+     * 
+     * Note: caller is responsible for closing the supplied connection.
+     * 
+     * @param conn
+     * @param table
+     * @param columns
+     * @param whereClause
+     * @param paramValues
+     * @param keyColumns
+     * @param lastKeyValues
+     * @param pageSize
+     * @return
+     * @since 0.5.2
+     */
+    protected static KeysetPage selectPage(Connection conn, String table, String[][] columns,
+            String whereClause, Object[] paramValues, String[] keyColumns,
+            Object[] lastKeyValues, int pageSize) {
+        return selectPage(jdbcTemplate(conn), table, columns, whereClause, paramValues,
+                keyColumns, lastKeyValues, pageSize);
+    }
+
+    /**
+     * Executes a simple SELECT statement with keyset (seek) pagination:
+     * {@code SELECT ... WHERE (whereClause) AND (k1>? OR (k1=? AND k2>?))
+     * ORDER BY k1,k2 LIMIT pageSize}.
+     * 
+     * <p>
+     * Unlike {@code LIMIT offset,count}, the cost of fetching a page does not
+     * grow with the page's depth, provided there is an index on the key
+     * columns. The seek condition is expanded (rather than a row-constructor
+     * comparison {@code (k1,k2)>(?,?)}) so that MySQL versions before 5.7.3
+     * can use a range scan too.
+     * </p>
+     * 
+     * <p>
+     * Key columns must uniquely identify a row and must be included in
+     * {@code columns} (matched against the column expression, e.g.
+     * {@code t.id}); their values are read from the result by the column's
+     * alias if any.
+     * </p>
+     * 
+     * @param jdbcTemplate
+     * @param table
+     * @param columns
+     * @param whereClause
+     * @param paramValues
+     * @param keyColumns
+     *            ordered list of key columns
+     * @param lastKeyValues
+     *            key values of the last row of the previous page, supply
+     *            {@code null} to fetch the first page (see
+     *            {@link KeysetPage#parseContinuationToken(String)})
+     * @param pageSize
+     * @return
+     * @since 0.5.2
+     */
+    protected static KeysetPage selectPage(JdbcTemplate jdbcTemplate, String table,
+            String[][] columns, String whereClause, Object[] paramValues, String[] keyColumns,
+            Object[] lastKeyValues, int pageSize) {
+        if (keyColumns == null || keyColumns.length == 0) {
+            throw new IllegalArgumentException("Key columns must not be empty.");
+        }
+        if (lastKeyValues != null && lastKeyValues.length != keyColumns.length) {
+            throw new IllegalArgumentException(
+                    "Number of keyColumns must be equal to number of lastKeyValues.");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        final String[] KEY_RESULT_NAMES = new String[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            KEY_RESULT_NAMES[i] = resultColumnName(columns, keyColumns[i]);
+            if (KEY_RESULT_NAMES[i] == null) {
+                throw new IllegalArgumentException("Key column [" + keyColumns[i]
+                        + "] is not selected.");
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String[] colDef : columns) {
+            sql.append(colDef[0]);
+            if (colDef.length > 1) {
+                sql.append(" AS ").append(colDef[1]);
+            }
+            sql.append(",");
+        }
+        sql.deleteCharAt(sql.length() - 1);
+
+        sql.append(" FROM ").append(table);
+
+        final boolean hasWhereClause = !StringUtils.isBlank(whereClause);
+        if (hasWhereClause) {
+            sql.append(" WHERE (").append(whereClause).append(")");
+        }
+        final String KEY_LIST = StringUtils.join(keyColumns, ',');
+        Object[] params = paramValues;
+        if (lastKeyValues != null) {
+            // (k1>?) OR (k1=? AND k2>?) OR (k1=? AND k2=? AND k3>?) ...
+            List<Object> seekParams = new ArrayList<Object>();
+            sql.append(hasWhereClause ? " AND (" : " WHERE (");
+            for (int i = 0; i < keyColumns.length; i++) {
+                sql.append(i > 0 ? " OR (" : "(");
+                for (int j = 0; j < i; j++) {
+                    sql.append(keyColumns[j]).append("=? AND ");
+                    seekParams.add(lastKeyValues[j]);
+                }
+                sql.append(keyColumns[i]).append(">?)");
+                seekParams.add(lastKeyValues[i]);
+            }
+            sql.append(')');
+            params = ArrayUtils.addAll(paramValues, seekParams.toArray());
+        }
+        sql.append(" ORDER BY ").append(KEY_LIST);
+        // fetch one extra row to find out if there are more pages
+        sql.append(" LIMIT ").append(pageSize + 1);
+
+        List<Map<String, Object>> rows = select(jdbcTemplate, sql.toString(), params);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        Object[] lastRowKeyValues = null;
+        if (rows.size() > 0) {
+            Map<String, Object> lastRow = rows.get(rows.size() - 1);
+            lastRowKeyValues = new Object[keyColumns.length];
+            for (int i = 0; i < keyColumns.length; i++) {
+                lastRowKeyValues[i] = lastRow.get(KEY_RESULT_NAMES[i]);
+            }
+        }
+        return new KeysetPage(rows, lastRowKeyValues, hasMore);
+    }
+
+    private static String unqualifiedName(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Finds the name of a selected column in the result set: its alias if
+     * any, otherwise its unqualified name.
+     * 
+     * @param columns
+     * @param column
+     * @return {@code null} if the column is not selected
+     */
+    private static String resultColumnName(String[][] columns, String column) {
+        String[] match = null;
+        for (String[] colDef : columns) {
+            if (colDef[0].equals(column)) {
+                match = colDef;
+                break;
+            }
+            if (match == null && unqualifiedName(colDef[0]).equals(unqualifiedName(column))) {
+                match = colDef;
+            }
+        }
+        if (match == null) {
+            return null;
+        }
+        return match.length > 1 ? match[1] : unqualifiedName(match[0]);
+    }
+
     /**
      * Executes a UPDATE IGNORE statement (without WHERE clause).
      * 
@@ -1021,41 +1468,12 @@ public class BaseMysqlDao extends BaseJdbcDao {
      */
     private static int updateEx(ExUpdate ex, JdbcTemplate jdbcTemplate, String tableName,
             String[] columnNames, Object[] values, String[] whereColumns, Object[] whereValues) {
-        final String SQL_TEMPLATE_FULL_IGNORE = "UPDATE IGNORE {0} SET {1} WHERE {2}";
-        final String SQL_TEMPLATE_IGNORE = "UPDATE IGNORE {0} SET {1}";
-        final String SQL_TEMPLATE_FULL_LOW_PRIORITY = "UPDATE LOW_PRIORITY {0} SET {1} WHERE {2}";
-        final String SQL_TEMPLATE_LOW_PRIORITY = "UPDATE LOW_PRIORITY {0} SET {1}";
-
-        final String SQL_TEMPLATE_FULL = ex == ExUpdate.IGNORE ? SQL_TEMPLATE_FULL_IGNORE
-                : SQL_TEMPLATE_FULL_LOW_PRIORITY;
-        final String SQL_TEMPLATE = ex == ExUpdate.IGNORE ? SQL_TEMPLATE_IGNORE
-                : SQL_TEMPLATE_LOW_PRIORITY;
-
-        final List<String> UPDATE_CLAUSE = new ArrayList<String>();
-        for (int i = 0; i < columnNames.length; i++) {
-            UPDATE_CLAUSE.add(columnNames[i] + "=?");
-        }
-
-        final List<String> WHERE_CLAUSE = new ArrayList<String>();
-        if (whereColumns != null && whereColumns.length > 0 && whereValues != null
-                && whereValues.length > 0) {
-            for (int i = 0; i < whereColumns.length; i++) {
-                WHERE_CLAUSE.add("(" + whereColumns[i] + "=?)");
-            }
-        }
-
-        String SQL;
-        Object[] PARAM_VALUES;
-        if (whereColumns != null && whereColumns.length > 0 && whereValues != null
-                && whereValues.length > 0) {
-            SQL = MessageFormat.format(SQL_TEMPLATE_FULL, tableName,
-                    StringUtils.join(UPDATE_CLAUSE, ','), StringUtils.join(WHERE_CLAUSE, " AND "));
-            PARAM_VALUES = ArrayUtils.addAll(values, whereValues);
-        } else {
-            SQL = MessageFormat.format(SQL_TEMPLATE, tableName,
-                    StringUtils.join(UPDATE_CLAUSE, ','));
-            PARAM_VALUES = values;
-        }
+        // a null modifier falls back to LOW_PRIORITY, as it always has
+        final String MODIFIER = (ex != null ? ex : ExUpdate.LOW_PRIORITY).name();
+        final String SQL = sqlUpdate(MODIFIER, tableName, columnNames, values, whereColumns,
+                whereValues);
+        final Object[] PARAM_VALUES = hasWhereClause(whereColumns, whereValues) ? ArrayUtils
+                .addAll(values, whereValues) : values;
         return update(jdbcTemplate, SQL, PARAM_VALUES);
     }
 
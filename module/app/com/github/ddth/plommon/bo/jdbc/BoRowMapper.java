@@ -0,0 +1,133 @@
+package com.github.ddth.plommon.bo.jdbc;
+
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.github.ddth.plommon.bo.BaseBo;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Maps result rows directly into {@link BaseBo} objects.
+ * 
+ * <p>
+ * The column-to-attribute plan (column labels, BO constructor) is worked out
+ * on the first execution of a (SQL, BO class) pair and then cached, so
+ * subsequent executions skip metadata lookups and reflection discovery.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class BoRowMapper<T extends BaseBo> implements RowMapper<T> {
+
+    /**
+     * Max number of cached column plans.
+     */
+    public final static int PLAN_CACHE_SIZE = 1024;
+
+    private static Cache<PlanKey, ColumnPlan<?>> cachedPlans = CacheBuilder.newBuilder()
+            .maximumSize(PLAN_CACHE_SIZE).expireAfterAccess(3600, TimeUnit.SECONDS).build();
+
+    private static class PlanKey {
+        private String sql;
+        private Class<?> clazz;
+
+        public PlanKey(String sql, Class<?> clazz) {
+            this.sql = sql;
+            this.clazz = clazz;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + clazz.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) obj;
+            return clazz == other.clazz && sql.equals(other.sql);
+        }
+    }
+
+    private static class ColumnPlan<T> {
+        private String[] attrNames;
+        private Constructor<T> constructor;
+        private int mapCapacity;
+
+        public ColumnPlan(String[] attrNames, Constructor<T> constructor) {
+            this.attrNames = attrNames;
+            this.constructor = constructor;
+            this.mapCapacity = attrNames.length * 4 / 3 + 2;
+        }
+    }
+
+    private PlanKey planKey;
+    private Class<T> clazz;
+    private ColumnPlan<T> plan;
+
+    public BoRowMapper(Class<T> clazz, String sql) {
+        this.clazz = clazz;
+        this.planKey = new PlanKey(sql, clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ColumnPlan<T> plan(ResultSet rs) throws SQLException {
+        if (plan == null) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            ColumnPlan<T> cachedPlan = (ColumnPlan<T>) cachedPlans.getIfPresent(planKey);
+            if (cachedPlan == null || cachedPlan.attrNames.length != rsmd.getColumnCount()) {
+                cachedPlan = buildPlan(rsmd);
+                cachedPlans.put(planKey, cachedPlan);
+            }
+            plan = cachedPlan;
+        }
+        return plan;
+    }
+
+    private ColumnPlan<T> buildPlan(ResultSetMetaData rsmd) throws SQLException {
+        int numCols = rsmd.getColumnCount();
+        String[] attrNames = new String[numCols];
+        for (int i = 0; i < numCols; i++) {
+            attrNames[i] = JdbcUtils.lookupColumnName(rsmd, i + 1);
+        }
+        try {
+            Constructor<T> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return new ColumnPlan<T>(attrNames, constructor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Class [" + clazz.getName()
+                    + "] does not have a no-arg constructor.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        ColumnPlan<T> plan = plan(rs);
+        Map<String, Object> attrs = new HashMap<String, Object>(plan.mapCapacity);
+        for (int i = 0; i < plan.attrNames.length; i++) {
+            attrs.put(plan.attrNames[i], JdbcUtils.getResultSetValue(rs, i + 1));
+        }
+        try {
+            T bo = plan.constructor.newInstance();
+            bo.attachAttributes(attrs);
+            return bo;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
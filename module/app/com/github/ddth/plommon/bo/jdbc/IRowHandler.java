@@ -0,0 +1,25 @@
+package com.github.ddth.plommon.bo.jdbc;
+
+import java.util.Map;
+
+/**
+ * Callback to process rows, one at a time, returned by a streaming SELECT
+ * statement.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IRowHandler {
+
+    /**
+     * Processes a row.
+     * 
+     * @param row
+     *            the row's data, as a map of {column name:value}
+     * @param rowNum
+     *            the row's number (0-based)
+     * @return {@code true} to continue with the next row, {@code false} to
+     *         stop
+     */
+    public boolean handleRow(Map<String, Object> row, int rowNum);
+}
@@ -0,0 +1,86 @@
+package com.github.ddth.plommon.bo.jdbc;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.ddth.commons.utils.SerializationUtils;
+
+/**
+ * A page of rows returned by a keyset (seek) pagination query.
+ * 
+ * <p>
+ * The continuation token is a JSON-encoded array of the last row's key
+ * values; pass {@link #parseContinuationToken(String)} result to the next
+ * query to fetch the next page. Key columns should be of numeric or string
+ * types so that their values survive the JSON round trip.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class KeysetPage {
+
+    private List<Map<String, Object>> rows;
+    private Object[] lastKeyValues;
+    private boolean hasMore;
+
+    public KeysetPage(List<Map<String, Object>> rows, Object[] lastKeyValues, boolean hasMore) {
+        this.rows = rows;
+        this.lastKeyValues = lastKeyValues;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Rows of this page.
+     * 
+     * @return
+     */
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    /**
+     * Key values of the last row of this page ({@code null} if the page is
+     * empty).
+     * 
+     * @return
+     */
+    public Object[] getLastKeyValues() {
+        return lastKeyValues;
+    }
+
+    /**
+     * Are there more rows after this page?
+     * 
+     * @return
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Gets the token to fetch the next page.
+     * 
+     * @return the continuation token, or {@code null} if there is no more
+     *         page
+     */
+    public String getContinuationToken() {
+        return hasMore && lastKeyValues != null ? SerializationUtils
+                .toJsonString(lastKeyValues) : null;
+    }
+
+    /**
+     * Parses a continuation token back to the last-seen key values.
+     * 
+     * @param token
+     * @return the last-seen key values, or {@code null} if the token is
+     *         empty/invalid
+     */
+    public static Object[] parseContinuationToken(String token) {
+        if (token == null || token.length() == 0) {
+            return null;
+        }
+        List<?> values = SerializationUtils.fromJsonString(token, List.class);
+        return values != null ? values.toArray() : null;
+    }
+}
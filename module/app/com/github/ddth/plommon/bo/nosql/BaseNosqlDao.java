@@ -1,16 +1,22 @@
 package com.github.ddth.plommon.bo.nosql;
 
 import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import com.github.ddth.plommon.bo.BaseBo;
 import com.github.ddth.plommon.bo.BaseDao;
 import com.github.ddth.plommon.bo.nosql.engine.cassandra.WideRowJsonCassandraNosqlEngine;
 import com.github.ddth.plommon.utils.PlayAppUtils;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Base class for NoSQL-based DAOs.
@@ -251,4 +257,428 @@ public abstract class BaseNosqlDao extends BaseDao {
         INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
         nosqlEngine.store(storageId, entryId, data);
     }
+
+    /**
+     * Loads an entry as a Map, cache-aside: the entry is looked up from cache
+     * first, and loaded from storage (then put to cache) if not cached.
+     * 
+     * <p>
+     * If negative caching is enabled (see {@link #getNegativeCacheTtl()}),
+     * entries that do not exist are also cached as "absent" markers, so that
+     * lookups of non-existing entries do not always hit the storage.
+     * </p>
+     * 
+     * @param storageId
+     * @param entryId
+     * @param cacheKey
+     * @param ttl
+     *            cache TTL in seconds
+     * @return
+     * @since 0.5.2
+     */
+    protected static Map<Object, Object> loadAsMapCached(String storageId, String entryId,
+            String cacheKey, int ttl) {
+        return loadAsMapCached(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId, cacheKey, ttl);
+    }
+
+    /**
+     * Loads an entry as a Map, cache-aside: the entry is looked up from cache
+     * first, and loaded from storage (then put to cache) if not cached.
+     * 
+     * <p>
+     * If negative caching is enabled (see {@link #getNegativeCacheTtl()}),
+     * entries that do not exist are also cached as "absent" markers, so that
+     * lookups of non-existing entries do not always hit the storage.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @param cacheKey
+     * @param ttl
+     *            cache TTL in seconds
+     * @return
+     * @since 0.5.2
+     */
+    protected static Map<Object, Object> loadAsMapCached(final String datasourceName,
+            final String storageId, final String entryId, String cacheKey, int ttl) {
+        return getOrLoad(cacheKey, ttl, new Callable<Map<Object, Object>>() {
+            @Override
+            public Map<Object, Object> call() throws Exception {
+                return loadAsMap(datasourceName, storageId, entryId);
+            }
+        });
+    }
+
+    /**
+     * Writes only the supplied fields of an entry, leaving its other fields
+     * untouched.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param fields
+     * @since 0.5.2
+     */
+    protected static void storePartial(String storageId, String entryId,
+            Map<Object, Object> fields) {
+        storePartial(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId, fields);
+    }
+
+    /**
+     * Writes only the supplied fields of an entry, leaving its other fields
+     * untouched.
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @param fields
+     * @since 0.5.2
+     */
+    protected static void storePartial(String datasourceName, String storageId, String entryId,
+            Map<Object, Object> fields) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IBulkNosqlEngine) {
+            ((IBulkNosqlEngine) nosqlEngine).storePartial(storageId, entryId, fields);
+            return;
+        }
+        if (fields == null || fields.size() == 0) {
+            return;
+        }
+        // read-modify-write fallback, not atomic
+        Map<Object, Object> data = new HashMap<Object, Object>();
+        Map<Object, Object> existing = nosqlEngine.loadAsMap(storageId, entryId);
+        if (existing != null) {
+            data.putAll(existing);
+        }
+        data.putAll(fields);
+        nosqlEngine.store(storageId, entryId, data);
+    }
+
+    /**
+     * Stores the modified attributes (see {@link BaseBo#getDirtyAttributes()})
+     * of a BO as fields of an entry; other fields are left untouched. Nothing
+     * is written if the BO is not dirty.
+     * 
+     * <p>
+     * Note: the BO is not marked clean by this method.
+     * </p>
+     * 
+     * @param storageId
+     * @param entryId
+     * @param bo
+     * @return {@code true} if something was written
+     * @since 0.5.2
+     */
+    protected static boolean storeDirty(String storageId, String entryId, BaseBo bo) {
+        return storeDirty(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId, bo);
+    }
+
+    /**
+     * Stores the modified attributes (see {@link BaseBo#getDirtyAttributes()})
+     * of a BO as fields of an entry; other fields are left untouched. Nothing
+     * is written if the BO is not dirty.
+     * 
+     * <p>
+     * Note: the BO is not marked clean by this method.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @param bo
+     * @return {@code true} if something was written
+     * @since 0.5.2
+     */
+    protected static boolean storeDirty(String datasourceName, String storageId, String entryId,
+            BaseBo bo) {
+        Map<String, Object> dirtyAttrs = bo.getDirtyAttributes();
+        if (dirtyAttrs.size() == 0) {
+            return false;
+        }
+        storePartial(datasourceName, storageId, entryId, new HashMap<Object, Object>(dirtyAttrs));
+        return true;
+    }
+
+    /**
+     * Loads multiple entries from storage as Maps.
+     * 
+     * @param storageId
+     * @param entryIds
+     * @return map of {entryId:entryData}; entries that do not exist are not
+     *         included
+     * @since 0.5.2
+     */
+    protected static Map<String, Map<Object, Object>> loadMulti(String storageId,
+            Collection<String> entryIds) {
+        return loadMulti(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryIds);
+    }
+
+    /**
+     * Loads multiple entries from storage as Maps.
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryIds
+     * @return map of {entryId:entryData}; entries that do not exist are not
+     *         included
+     * @since 0.5.2
+     */
+    protected static Map<String, Map<Object, Object>> loadMulti(String datasourceName,
+            String storageId, Collection<String> entryIds) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IBulkNosqlEngine) {
+            return ((IBulkNosqlEngine) nosqlEngine).loadMulti(storageId, entryIds);
+        }
+        Map<String, Map<Object, Object>> result = new HashMap<String, Map<Object, Object>>();
+        if (entryIds != null) {
+            for (String entryId : entryIds) {
+                Map<Object, Object> data = nosqlEngine.loadAsMap(storageId, entryId);
+                if (data != null) {
+                    result.put(entryId, data);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores multiple entries to storage.
+     * 
+     * @param storageId
+     * @param entries
+     *            map of {entryId:entryData}
+     * @since 0.5.2
+     */
+    protected static void storeMulti(String storageId, Map<String, Map<Object, Object>> entries) {
+        storeMulti(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entries);
+    }
+
+    /**
+     * Stores multiple entries to storage.
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entries
+     *            map of {entryId:entryData}
+     * @since 0.5.2
+     */
+    protected static void storeMulti(String datasourceName, String storageId,
+            Map<String, Map<Object, Object>> entries) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IBulkNosqlEngine) {
+            ((IBulkNosqlEngine) nosqlEngine).storeMulti(storageId, entries);
+            return;
+        }
+        if (entries != null) {
+            for (Map.Entry<String, Map<Object, Object>> entry : entries.entrySet()) {
+                nosqlEngine.store(storageId, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /*--------------------------------------------------------------------------------*/
+    /**
+     * Deletes an entry from storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> deleteAsync(String storageId, String entryId) {
+        return deleteAsync(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId);
+    }
+
+    /**
+     * Deletes an entry from storage, asynchronously.
+     * 
+     * <p>
+     * Note: if the underlying engine does not support asynchronous operations,
+     * the entry is deleted synchronously and a completed future is returned.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> deleteAsync(String datasourceName, String storageId,
+            String entryId) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IAsyncNosqlEngine) {
+            return ((IAsyncNosqlEngine) nosqlEngine).deleteAsync(storageId, entryId);
+        }
+        try {
+            nosqlEngine.delete(storageId, entryId);
+            return Futures.immediateFuture(null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Loads an entry from storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<byte[]> loadAsync(String storageId, String entryId) {
+        return loadAsync(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId);
+    }
+
+    /**
+     * Loads an entry from storage, asynchronously.
+     * 
+     * <p>
+     * Note: if the underlying engine does not support asynchronous operations,
+     * the entry is loaded synchronously and a completed future is returned.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<byte[]> loadAsync(String datasourceName, String storageId,
+            String entryId) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IAsyncNosqlEngine) {
+            return ((IAsyncNosqlEngine) nosqlEngine).loadAsync(storageId, entryId);
+        }
+        try {
+            return Futures.immediateFuture(nosqlEngine.load(storageId, entryId));
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Loads an entry from storage as a Map, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Map<Object, Object>> loadAsMapAsync(String storageId,
+            String entryId) {
+        return loadAsMapAsync(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId);
+    }
+
+    /**
+     * Loads an entry from storage as a Map, asynchronously.
+     * 
+     * <p>
+     * Note: if the underlying engine does not support asynchronous operations,
+     * the entry is loaded synchronously and a completed future is returned.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Map<Object, Object>> loadAsMapAsync(String datasourceName,
+            String storageId, String entryId) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IAsyncNosqlEngine) {
+            return ((IAsyncNosqlEngine) nosqlEngine).loadAsMapAsync(storageId, entryId);
+        }
+        try {
+            return Futures.immediateFuture(nosqlEngine.loadAsMap(storageId, entryId));
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> storeAsync(String storageId, String entryId,
+            byte[] data) {
+        return storeAsync(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId, data);
+    }
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * <p>
+     * Note: if the underlying engine does not support asynchronous operations,
+     * the entry is stored synchronously and a completed future is returned.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> storeAsync(String datasourceName, String storageId,
+            String entryId, byte[] data) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IAsyncNosqlEngine) {
+            return ((IAsyncNosqlEngine) nosqlEngine).storeAsync(storageId, entryId, data);
+        }
+        try {
+            nosqlEngine.store(storageId, entryId, data);
+            return Futures.immediateFuture(null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> storeAsync(String storageId, String entryId,
+            Map<Object, Object> data) {
+        return storeAsync(BaseDao.DEFAULT_DATASOURCE_NAME, storageId, entryId, data);
+    }
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * <p>
+     * Note: if the underlying engine does not support asynchronous operations,
+     * the entry is stored synchronously and a completed future is returned.
+     * </p>
+     * 
+     * @param datasourceName
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    protected static ListenableFuture<Void> storeAsync(String datasourceName, String storageId,
+            String entryId, Map<Object, Object> data) {
+        INosqlEngine nosqlEngine = nosqlEngine(datasourceName);
+        if (nosqlEngine instanceof IAsyncNosqlEngine) {
+            return ((IAsyncNosqlEngine) nosqlEngine).storeAsync(storageId, entryId, data);
+        }
+        try {
+            nosqlEngine.store(storageId, entryId, data);
+            return Futures.immediateFuture(null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package com.github.ddth.plommon.bo.nosql;
+
+import java.util.Map;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Asynchronous companion of {@link INosqlEngine}: methods return immediately
+ * with a {@link ListenableFuture} instead of blocking the caller thread.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IAsyncNosqlEngine {
+
+    /**
+     * Deletes an existing entry from storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     */
+    public ListenableFuture<Void> deleteAsync(String storageId, String entryId);
+
+    /**
+     * Loads an entry from storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     */
+    public ListenableFuture<byte[]> loadAsync(String storageId, String entryId);
+
+    /**
+     * Loads an entry from storage as a Map, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @return
+     */
+    public ListenableFuture<Map<Object, Object>> loadAsMapAsync(String storageId, String entryId);
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     */
+    public ListenableFuture<Void> storeAsync(String storageId, String entryId, byte[] data);
+
+    /**
+     * Stores an entry to storage, asynchronously.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param data
+     * @return
+     */
+    public ListenableFuture<Void> storeAsync(String storageId, String entryId,
+            Map<Object, Object> data);
+}
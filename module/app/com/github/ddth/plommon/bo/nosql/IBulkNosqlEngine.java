@@ -0,0 +1,46 @@
+package com.github.ddth.plommon.bo.nosql;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Optional companion of {@link INosqlEngine}: partial writes and multi-entry
+ * operations. {@link BaseNosqlDao} falls back to per-entry
+ * {@link INosqlEngine} calls for engines that do not implement it.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IBulkNosqlEngine {
+
+    /**
+     * Writes only the supplied fields of an entry, leaving its other fields
+     * untouched.
+     * 
+     * @param storageId
+     * @param entryId
+     * @param fields
+     *            map of {fieldName:value}
+     */
+    public void storePartial(String storageId, String entryId, Map<Object, Object> fields);
+
+    /**
+     * Loads multiple entries from storage as Maps.
+     * 
+     * @param storageId
+     * @param entryIds
+     * @return map of {entryId:entryData}; entries that do not exist are not
+     *         included
+     */
+    public Map<String, Map<Object, Object>> loadMulti(String storageId,
+            Collection<String> entryIds);
+
+    /**
+     * Stores multiple entries to storage.
+     * 
+     * @param storageId
+     * @param entries
+     *            map of {entryId:entryData}
+     */
+    public void storeMulti(String storageId, Map<String, Map<Object, Object>> entries);
+}
@@ -1,23 +1,217 @@
 package com.github.ddth.plommon.bo.nosql.engine;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.github.ddth.plommon.bo.nosql.IBulkNosqlEngine;
 import com.github.ddth.plommon.bo.nosql.INosqlEngine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
- * Abstract implementation of {@link INosqlEngine}.
+ * Abstract implementation of {@link INosqlEngine} (and, since v0.5.2,
+ * {@link IBulkNosqlEngine}).
  * 
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
  * @since 0.5.0
  */
-public abstract class BaseNosqlEngine implements INosqlEngine {
+public abstract class BaseNosqlEngine implements INosqlEngine, IBulkNosqlEngine {
 
     protected final static Charset CHARSET = Charset.forName("UTF-8");
 
+    /**
+     * Default max number of concurrent requests of multi-entry operations.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_MULTI_PARALLELISM = 16;
+
+    private int multiParallelism = DEFAULT_MULTI_PARALLELISM;
+    private ExecutorService multiExecutor;
+
     public BaseNosqlEngine init() {
         return this;
     }
 
     public void destroy() {
+        synchronized (this) {
+            if (multiExecutor != null) {
+                multiExecutor.shutdown();
+                multiExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Sets max number of concurrent requests of multi-entry operations.
+     * 
+     * <p>
+     * If the worker pool has already been created with a different size, it
+     * is shut down (running operations complete) and re-created on next use.
+     * </p>
+     * 
+     * @param multiParallelism
+     * @return
+     * @since 0.5.2
+     */
+    synchronized public BaseNosqlEngine setMultiParallelism(int multiParallelism) {
+        int value = multiParallelism > 0 ? multiParallelism : 1;
+        if (value != this.multiParallelism && multiExecutor != null) {
+            multiExecutor.shutdown();
+            multiExecutor = null;
+        }
+        this.multiParallelism = value;
+        return this;
+    }
+
+    /**
+     * Gets max number of concurrent requests of multi-entry operations.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    synchronized public int getMultiParallelism() {
+        return multiParallelism;
+    }
+
+    synchronized private ExecutorService multiExecutor() {
+        if (multiExecutor == null) {
+            multiExecutor = Executors.newFixedThreadPool(multiParallelism,
+                    new ThreadFactoryBuilder().setDaemon(true)
+                            .setNameFormat(getClass().getSimpleName() + "-multi-%d").build());
+        }
+        return multiExecutor;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof RuntimeException ? (RuntimeException) cause
+                : new RuntimeException(cause);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method loads the whole entry, merges the supplied fields and stores
+     * it back (read-modify-write, not atomic). Sub-class whose storage can
+     * update individual fields overrides this method.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public void storePartial(String storageId, String entryId, Map<Object, Object> fields) {
+        if (fields == null || fields.size() == 0) {
+            return;
+        }
+        Map<Object, Object> data = new HashMap<Object, Object>();
+        Map<Object, Object> existing = loadAsMap(storageId, entryId);
+        if (existing != null) {
+            data.putAll(existing);
+        }
+        data.putAll(fields);
+        store(storageId, entryId, data);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method calls {@link #loadAsMap(String, String)} for each entry, in
+     * parallel (at most {@link #getMultiParallelism()} concurrent requests).
+     * Sub-class overrides this method to implement its own business logic.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public Map<String, Map<Object, Object>> loadMulti(final String storageId,
+            Collection<String> entryIds) {
+        Map<String, Map<Object, Object>> result = new HashMap<String, Map<Object, Object>>();
+        if (entryIds == null || entryIds.size() == 0) {
+            return result;
+        }
+        List<String> ids = new ArrayList<String>(entryIds);
+        List<Future<Map<Object, Object>>> futures = new ArrayList<Future<Map<Object, Object>>>(
+                ids.size());
+        ExecutorService executor = multiExecutor();
+        for (final String entryId : ids) {
+            futures.add(executor.submit(new Callable<Map<Object, Object>>() {
+                @Override
+                public Map<Object, Object> call() throws Exception {
+                    return loadAsMap(storageId, entryId);
+                }
+            }));
+        }
+        try {
+            for (int i = 0, n = ids.size(); i < n; i++) {
+                Map<Object, Object> data = futures.get(i).get();
+                if (data != null) {
+                    result.put(ids.get(i), data);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method calls {@link #store(String, String, Map)} for each entry, in
+     * parallel (at most {@link #getMultiParallelism()} concurrent requests).
+     * Sub-class overrides this method to implement its own business logic.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public void storeMulti(final String storageId, Map<String, Map<Object, Object>> entries) {
+        if (entries == null || entries.size() == 0) {
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(entries.size());
+        ExecutorService executor = multiExecutor();
+        for (final Map.Entry<String, Map<Object, Object>> entry : entries.entrySet()) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    store(storageId, entry.getKey(), entry.getValue());
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
     }
 }
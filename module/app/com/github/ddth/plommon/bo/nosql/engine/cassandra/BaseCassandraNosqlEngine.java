@@ -15,13 +15,18 @@ import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Session;
 import com.github.ddth.commons.utils.SerializationUtils;
 import com.github.ddth.plommon.bo.BaseDao;
+import com.github.ddth.plommon.bo.nosql.IAsyncNosqlEngine;
 import com.github.ddth.plommon.bo.nosql.engine.BaseNosqlEngine;
 import com.github.ddth.plommon.utils.PlayAppUtils;
+import com.google.common.base.Function;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Base class for Cassandra-specific NoSQL engines.
@@ -45,7 +50,8 @@ import com.google.common.cache.RemovalNotification;
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
  * @since 0.5.0
  */
-public abstract class BaseCassandraNosqlEngine extends BaseNosqlEngine {
+public abstract class BaseCassandraNosqlEngine extends BaseNosqlEngine implements
+        IAsyncNosqlEngine {
 
     private String datasourceName = BaseDao.DEFAULT_DATASOURCE_NAME;
     private List<String> hosts = new ArrayList<String>();
@@ -58,6 +64,7 @@ public abstract class BaseCassandraNosqlEngine extends BaseNosqlEngine {
             .removalListener(new RemovalListener<String, Session>() {
                 @Override
                 public void onRemoval(RemovalNotification<String, Session> entry) {
+                    CassandraUtils.invalidatePreparedStatements(entry.getValue());
                     entry.getValue().close();
                 }
             }).build(new CacheLoader<String, Session>() {
@@ -161,6 +168,20 @@ public abstract class BaseCassandraNosqlEngine extends BaseNosqlEngine {
         }
     }
 
+    /**
+     * Gets stats of the prepared statement caches of all opened sessions.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public CacheStats getPreparedStatementCacheStats() {
+        CacheStats result = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Session session : sessions.asMap().values()) {
+            result = result.plus(CassandraUtils.getPreparedStatementCacheStats(session));
+        }
+        return result;
+    }
+
     /*------------------------------------------------------------*/
 
     /**
@@ -225,4 +246,93 @@ public abstract class BaseCassandraNosqlEngine extends BaseNosqlEngine {
         String json = SerializationUtils.toJsonString(data);
         store(storageId, entryId, json);
     }
+
+    /*------------------------------------------------------------*/
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method calls {@link #delete(String, String)} synchronously.
+     * Sub-class overrides this method to implement its own asynchronous logic.
+     * </p>
+     */
+    @Override
+    public ListenableFuture<Void> deleteAsync(String storageId, String entryId) {
+        try {
+            delete(storageId, entryId);
+            return Futures.immediateFuture(null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method calls {@link #load(String, String)} synchronously. Sub-class
+     * overrides this method to implement its own asynchronous logic.
+     * </p>
+     */
+    @Override
+    public ListenableFuture<byte[]> loadAsync(String storageId, String entryId) {
+        try {
+            return Futures.immediateFuture(load(storageId, entryId));
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method delegates to {@link #loadAsync(String, String)}.
+     * </p>
+     */
+    @Override
+    public ListenableFuture<Map<Object, Object>> loadAsMapAsync(String storageId, String entryId) {
+        return Futures.transform(loadAsync(storageId, entryId),
+                new Function<byte[], Map<Object, Object>>() {
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public Map<Object, Object> apply(byte[] data) {
+                        String json = data != null ? new String(data, CHARSET) : "null";
+                        return SerializationUtils.fromJsonString(json, Map.class);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method calls {@link #store(String, String, byte[])} synchronously.
+     * Sub-class overrides this method to implement its own asynchronous logic.
+     * </p>
+     */
+    @Override
+    public ListenableFuture<Void> storeAsync(String storageId, String entryId, byte[] data) {
+        try {
+            store(storageId, entryId, data);
+            return Futures.immediateFuture(null);
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * This method delegates to {@link #storeAsync(String, String, byte[])}.
+     * </p>
+     */
+    @Override
+    public ListenableFuture<Void> storeAsync(String storageId, String entryId,
+            Map<Object, Object> data) {
+        String json = SerializationUtils.toJsonString(data);
+        return storeAsync(storageId, entryId, json != null ? json.getBytes(CHARSET) : null);
+    }
 }
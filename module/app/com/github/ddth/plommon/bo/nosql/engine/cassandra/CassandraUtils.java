@@ -1,10 +1,25 @@
 package com.github.ddth.plommon.bo.nosql.engine.cassandra;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.github.ddth.plommon.bo.BaseDao;
+import com.github.ddth.plommon.bo.profiling.IProfilingSink;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * Cassandra utility class.
@@ -14,6 +29,79 @@ import com.datastax.driver.core.Session;
  */
 public class CassandraUtils {
 
+    /**
+     * Max number of cached {@link PreparedStatement}s per session.
+     * 
+     * @since 0.5.2
+     */
+    public final static int PREPARED_STATEMENT_CACHE_SIZE = 1024;
+
+    /**
+     * Per-session caches of prepared statements, keyed by CQL. Sessions are
+     * weakly referenced so that closed & discarded sessions do not leak.
+     */
+    private static LoadingCache<Session, Cache<String, PreparedStatement>> preparedStatementCaches = CacheBuilder
+            .newBuilder().weakKeys()
+            .build(new CacheLoader<Session, Cache<String, PreparedStatement>>() {
+                @Override
+                public Cache<String, PreparedStatement> load(Session session) throws Exception {
+                    return CacheBuilder.newBuilder().maximumSize(PREPARED_STATEMENT_CACHE_SIZE)
+                            .recordStats().build();
+                }
+            });
+
+    private static Cache<String, PreparedStatement> preparedStatementCache(Session session) {
+        return preparedStatementCaches.getUnchecked(session);
+    }
+
+    /**
+     * Prepares a CQL statement. Prepared statements are cached per session,
+     * so a CQL is sent to the server for preparing only once.
+     * 
+     * @param session
+     * @param cql
+     * @return
+     * @since 0.5.2
+     */
+    public static PreparedStatement prepareStatement(final Session session, final String cql) {
+        try {
+            return preparedStatementCache(session).get(cql, new Callable<PreparedStatement>() {
+                @Override
+                public PreparedStatement call() throws Exception {
+                    return session.prepare(cql);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Gets stats of a session's prepared statement cache.
+     * 
+     * @param session
+     * @return
+     * @since 0.5.2
+     */
+    public static CacheStats getPreparedStatementCacheStats(Session session) {
+        Cache<String, PreparedStatement> cache = preparedStatementCaches.getIfPresent(session);
+        return cache != null ? cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Discards all cached prepared statements of a session.
+     * 
+     * @param session
+     * @since 0.5.2
+     */
+    public static void invalidatePreparedStatements(Session session) {
+        preparedStatementCaches.invalidate(session);
+    }
+
     /**
      * Executes a non-SELECT query.
      * 
@@ -22,7 +110,7 @@ public class CassandraUtils {
      * @param bindValues
      */
     public static void executeNonSelect(Session session, String cql, Object... bindValues) {
-        executeNonSelect(session, session.prepare(cql), bindValues);
+        executeNonSelect(session, prepareStatement(session, cql), bindValues);
     }
 
     /**
@@ -34,11 +122,7 @@ public class CassandraUtils {
      */
     public static void executeNonSelect(Session session, PreparedStatement stm,
             Object... bindValues) {
-        BoundStatement bstm = stm.bind();
-        if (bindValues != null && bindValues.length > 0) {
-            bstm.bind(bindValues);
-        }
-        session.execute(bstm);
+        execute(session, stm, bindValues);
     }
 
     /**
@@ -50,7 +134,7 @@ public class CassandraUtils {
      * @return
      */
     public static ResultSet execute(Session session, String cql, Object... bindValues) {
-        return execute(session, session.prepare(cql), bindValues);
+        return execute(session, prepareStatement(session, cql), bindValues);
     }
 
     /**
@@ -66,7 +150,30 @@ public class CassandraUtils {
         if (bindValues != null && bindValues.length > 0) {
             bstm.bind(bindValues);
         }
-        return session.execute(bstm);
+        return execute(session, bstm, stm.getQueryString());
+    }
+
+    /**
+     * Executes a statement, recording its execution time to DAO profiling.
+     * 
+     * @param session
+     * @param stm
+     * @param cql
+     *            the statement's CQL, used as profiling command
+     * @return
+     * @since 0.5.2
+     */
+    public static ResultSet execute(Session session, Statement stm, String cql) {
+        long timestampStart = System.nanoTime();
+        boolean error = false;
+        try {
+            return session.execute(stm);
+        } catch (RuntimeException e) {
+            error = true;
+            throw e;
+        } finally {
+            BaseDao.addProfilingNs(System.nanoTime() - timestampStart, cql, error);
+        }
     }
 
     /**
@@ -78,7 +185,7 @@ public class CassandraUtils {
      * @return
      */
     public static Row executeOne(Session session, String cql, Object... bindValues) {
-        return executeOne(session, session.prepare(cql), bindValues);
+        return executeOne(session, prepareStatement(session, cql), bindValues);
     }
 
     /**
@@ -93,4 +200,70 @@ public class CassandraUtils {
         ResultSet rs = execute(session, stm, bindValues);
         return rs != null ? rs.one() : null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Executes a query asynchronously.
+     * 
+     * @param session
+     * @param cql
+     * @param bindValues
+     * @return
+     * @since 0.5.2
+     */
+    public static ResultSetFuture executeAsync(Session session, String cql, Object... bindValues) {
+        return executeAsync(session, prepareStatement(session, cql), bindValues);
+    }
+
+    /**
+     * Executes a query asynchronously.
+     * 
+     * @param session
+     * @param stm
+     * @param bindValues
+     * @return
+     * @since 0.5.2
+     */
+    public static ResultSetFuture executeAsync(Session session, PreparedStatement stm,
+            Object... bindValues) {
+        BoundStatement bstm = stm.bind();
+        if (bindValues != null && bindValues.length > 0) {
+            bstm.bind(bindValues);
+        }
+        return executeAsync(session, bstm, stm.getQueryString());
+    }
+
+    /**
+     * Executes a statement asynchronously, recording its execution time to DAO
+     * profiling when it completes.
+     * 
+     * <p>
+     * The execution is recorded to the calling thread's profiling data (see
+     * {@link BaseDao#captureProfilingSink()}), although it completes on a
+     * driver I/O thread.
+     * </p>
+     * 
+     * @param session
+     * @param stm
+     * @param cql
+     *            the statement's CQL, used as profiling command
+     * @return
+     * @since 0.5.2
+     */
+    public static ResultSetFuture executeAsync(Session session, Statement stm, final String cql) {
+        final IProfilingSink sink = BaseDao.captureProfilingSink();
+        final long timestampStart = System.nanoTime();
+        ResultSetFuture future = session.executeAsync(stm);
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet result) {
+                BaseDao.addProfilingNs(sink, System.nanoTime() - timestampStart, cql, false);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                BaseDao.addProfilingNs(sink, System.nanoTime() - timestampStart, cql, true);
+            }
+        });
+        return future;
+    }
+}
@@ -1,15 +1,27 @@
 package com.github.ddth.plommon.bo.nosql.engine.cassandra;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.github.ddth.commons.utils.SerializationUtils;
+import com.github.ddth.plommon.utils.PlayAppUtils;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Wide-row, Cassandra-specific NoSQL engine.
@@ -36,6 +48,62 @@ import com.github.ddth.commons.utils.SerializationUtils;
  */
 public class WideRowJsonCassandraNosqlEngine extends BaseCassandraNosqlEngine {
 
+    /**
+     * Default max number of statements per batch when storing an entry.
+     * 
+     * @since 0.5.2
+     */
+    public final static int DEFAULT_STORE_BATCH_SIZE = 100;
+
+    public final static String CONF_KEY_STORE_BATCH_SIZE = "plommon.bo.cassandra.{0}.storeBatchSize";
+
+    private int storeBatchSize = DEFAULT_STORE_BATCH_SIZE;
+
+    private final static Function<Object, Void> TO_VOID_FUNC = new Function<Object, Void>() {
+        @Override
+        public Void apply(Object input) {
+            return null;
+        }
+    };
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WideRowJsonCassandraNosqlEngine init() {
+        super.init();
+
+        Integer confStoreBatchSize = PlayAppUtils.appConfigInteger(MessageFormat.format(
+                CONF_KEY_STORE_BATCH_SIZE, getDatasourceName()));
+        if (confStoreBatchSize != null) {
+            setStoreBatchSize(confStoreBatchSize.intValue());
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets max number of statements per batch when storing an entry.
+     * 
+     * @param storeBatchSize
+     * @return
+     * @since 0.5.2
+     */
+    public WideRowJsonCassandraNosqlEngine setStoreBatchSize(int storeBatchSize) {
+        this.storeBatchSize = storeBatchSize > 0 ? storeBatchSize : DEFAULT_STORE_BATCH_SIZE;
+        return this;
+    }
+
+    /**
+     * Gets max number of statements per batch when storing an entry.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public int getStoreBatchSize() {
+        return storeBatchSize;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -62,15 +130,7 @@ public class WideRowJsonCassandraNosqlEngine extends BaseCassandraNosqlEngine {
         CassandraUtils.executeNonSelect(session, CQL, entryId);
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public Map<Object, Object> loadAsMap(String tableName, String entryId) {
-        final String CQL = MessageFormat.format("SELECT id, key, value FROM {0} WHERE id=?",
-                tableName);
-        Session session = getSession();
-        List<Row> rows = CassandraUtils.execute(session, CQL, entryId).all();
+    private static Map<Object, Object> toMap(List<Row> rows) {
         if (rows == null || rows.size() == 0) {
             // not found
             return null;
@@ -88,15 +148,219 @@ public class WideRowJsonCassandraNosqlEngine extends BaseCassandraNosqlEngine {
      * {@inheritDoc}
      */
     @Override
-    public void store(String tableName, String entryId, Map<Object, Object> data) {
-        final String CQL = MessageFormat.format("UPDATE {0} SET key=?, value=? WHERE id=?",
+    public Map<Object, Object> loadAsMap(String tableName, String entryId) {
+        final String CQL = MessageFormat.format("SELECT id, key, value FROM {0} WHERE id=?",
+                tableName);
+        Session session = getSession();
+        List<Row> rows = CassandraUtils.execute(session, CQL, entryId).all();
+        return toMap(rows);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public ListenableFuture<Void> deleteAsync(String tableName, String entryId) {
+        final String CQL = MessageFormat.format("DELETE FROM {0} WHERE id=?", tableName);
+        Session session = getSession();
+        return Futures.transform(CassandraUtils.executeAsync(session, CQL, entryId),
+                TO_VOID_FUNC);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public ListenableFuture<Map<Object, Object>> loadAsMapAsync(String tableName, String entryId) {
+        final String CQL = MessageFormat.format("SELECT id, key, value FROM {0} WHERE id=?",
                 tableName);
         Session session = getSession();
-        PreparedStatement pstm = session.prepare(CQL);
+        return Futures.transform(CassandraUtils.executeAsync(session, CQL, entryId),
+                new Function<ResultSet, Map<Object, Object>>() {
+                    @Override
+                    public Map<Object, Object> apply(ResultSet rs) {
+                        return toMap(rs.all());
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * See {@link #storeAsync(String, String, Map)}.
+     * </p>
+     */
+    @Override
+    public void store(String tableName, String entryId, Map<Object, Object> data) {
+        try {
+            storeAsync(tableName, entryId, data).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Each field is a column of the wide row, so only the supplied columns are
+     * written (see {@link #storeAsync(String, String, Map)}); no read is
+     * needed.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public void storePartial(String tableName, String entryId, Map<Object, Object> fields) {
+        store(tableName, entryId, fields);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * All columns of the entry are written by partition-local unlogged
+     * batch(es) of at most {@link #getStoreBatchSize()} statements each;
+     * batches are executed concurrently. Hence, storing an entry costs one
+     * round trip as long as it has no more than {@link #getStoreBatchSize()}
+     * columns.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public ListenableFuture<Void> storeAsync(String tableName, String entryId,
+            Map<Object, Object> data) {
+        if (data == null || data.size() == 0) {
+            return Futures.immediateFuture(null);
+        }
+        final String CQL = MessageFormat.format(
+                "INSERT INTO {0} (id, key, value) VALUES (?, ?, ?)", tableName);
+        Session session = getSession();
+        PreparedStatement pstm = CassandraUtils.prepareStatement(session, CQL);
+        List<ListenableFuture<ResultSet>> futures = new ArrayList<ListenableFuture<ResultSet>>();
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        int batchCount = 0;
         for (Entry<Object, Object> entry : data.entrySet()) {
             String key = entry.getKey().toString();
             String value = SerializationUtils.toJsonString(entry.getValue());
-            CassandraUtils.executeNonSelect(session, pstm, key, value, entry);
+            batch.add(pstm.bind(entryId, key, value));
+            if (++batchCount >= storeBatchSize) {
+                futures.add(CassandraUtils.executeAsync(session, batch, CQL));
+                batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                batchCount = 0;
+            }
         }
+        if (batchCount > 0) {
+            futures.add(CassandraUtils.executeAsync(session, batch, CQL));
+        }
+        return Futures.transform(Futures.allAsList(futures), TO_VOID_FUNC);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Entries are loaded by concurrent asynchronous queries, at most
+     * {@link #getMultiParallelism()} in-flight at a time.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public Map<String, Map<Object, Object>> loadMulti(String tableName,
+            Collection<String> entryIds) {
+        Map<String, Map<Object, Object>> result = new HashMap<String, Map<Object, Object>>();
+        if (entryIds == null || entryIds.size() == 0) {
+            return result;
+        }
+        final String CQL = MessageFormat.format("SELECT id, key, value FROM {0} WHERE id=?",
+                tableName);
+        Session session = getSession();
+        PreparedStatement pstm = CassandraUtils.prepareStatement(session, CQL);
+        List<String> ids = new ArrayList<String>(entryIds);
+        List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(ids.size());
+        Semaphore permits = new Semaphore(getMultiParallelism());
+        try {
+            for (String entryId : ids) {
+                permits.acquire();
+                futures.add(releaseOnDone(CassandraUtils.executeAsync(session, pstm, entryId),
+                        permits));
+            }
+            for (int i = 0, n = ids.size(); i < n; i++) {
+                Map<Object, Object> data = toMap(futures.get(i).getUninterruptibly().all());
+                if (data != null) {
+                    result.put(ids.get(i), data);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            for (ResultSetFuture future : futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Entries are stored by concurrent asynchronous queries, at most
+     * {@link #getMultiParallelism()} entries in-flight at a time.
+     * </p>
+     * 
+     * @since 0.5.2
+     */
+    @Override
+    public void storeMulti(String tableName, Map<String, Map<Object, Object>> entries) {
+        if (entries == null || entries.size() == 0) {
+            return;
+        }
+        List<ListenableFuture<Void>> futures = new ArrayList<ListenableFuture<Void>>(
+                entries.size());
+        Semaphore permits = new Semaphore(getMultiParallelism());
+        try {
+            for (Entry<String, Map<Object, Object>> entry : entries.entrySet()) {
+                permits.acquire();
+                futures.add(releaseOnDone(storeAsync(tableName, entry.getKey(), entry.getValue()),
+                        permits));
+            }
+            Futures.allAsList(futures).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new RuntimeException(cause);
+        } finally {
+            for (ListenableFuture<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static <T extends ListenableFuture<?>> T releaseOnDone(T future,
+            final Semaphore permits) {
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                permits.release();
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return future;
     }
 }
@@ -0,0 +1,167 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.ddth.plommon.bo.ProfilingRecord;
+
+/**
+ * Profiling sink that aggregates execution time per command across all
+ * threads, without locking.
+ * 
+ * <p>
+ * Individual records are not kept; {@link #getRecords()} returns one record
+ * per distinct command, whose execution time is the accumulated total.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class AggregateProfilingSink implements IProfilingSink {
+
+    public final static int DEFAULT_MAX_COMMANDS = 10000;
+
+    /**
+     * Commands beyond the limit are aggregated under this name.
+     */
+    public final static String OTHER_COMMANDS = "<other>";
+
+    /**
+     * Aggregated stats (count, total and max execution time) of a command,
+     * updated lock-free.
+     */
+    public static class Stats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNs = new AtomicLong();
+        private final AtomicLong maxNs = new AtomicLong();
+
+        /**
+         * Records an execution.
+         * 
+         * @param execTimeNs
+         */
+        protected void add(long execTimeNs) {
+            count.incrementAndGet();
+            totalNs.addAndGet(execTimeNs);
+            long max = maxNs.get();
+            while (execTimeNs > max && !maxNs.compareAndSet(max, execTimeNs)) {
+                max = maxNs.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNs() {
+            return totalNs.get();
+        }
+
+        public long getMaxNs() {
+            return maxNs.get();
+        }
+
+        public long getAverageNs() {
+            long c = count.get();
+            return c > 0 ? totalNs.get() / c : 0;
+        }
+    }
+
+    private final int maxCommands;
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+    public AggregateProfilingSink() {
+        this(DEFAULT_MAX_COMMANDS);
+    }
+
+    /**
+     * @param maxCommands
+     *            max number of distinct commands to track
+     */
+    public AggregateProfilingSink(int maxCommands) {
+        this.maxCommands = maxCommands;
+    }
+
+    private Stats statsFor(String command) {
+        String key = command != null ? command : OTHER_COMMANDS;
+        Stats result = stats.get(key);
+        if (result == null) {
+            if (stats.size() >= maxCommands) {
+                key = OTHER_COMMANDS;
+                result = stats.get(key);
+                if (result != null) {
+                    return result;
+                }
+            }
+            Stats newStats = new Stats();
+            result = stats.putIfAbsent(key, newStats);
+            if (result == null) {
+                result = newStats;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProfilingRecord record(long execTimeNs, String command) {
+        statsFor(command).add(execTimeNs);
+        return null;
+    }
+
+    /**
+     * Gets a snapshot of aggregated stats, keyed by command.
+     * 
+     * @return
+     */
+    public Map<String, Stats> getStats() {
+        return new HashMap<String, Stats>(stats);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProfilingRecord[] getRecords() {
+        ProfilingRecord[] result = new ProfilingRecord[stats.size()];
+        int i = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            if (i >= result.length) {
+                break;
+            }
+            long totalNs = entry.getValue().getTotalNs();
+            result[i++] = new ProfilingRecord(totalNs / 1000000L, totalNs, entry.getKey());
+        }
+        if (i < result.length) {
+            ProfilingRecord[] trimmed = new ProfilingRecord[i];
+            System.arraycopy(result, 0, trimmed, 0, i);
+            return trimmed;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Note: aggregated stats are process-wide and are not cleared by this
+     * method (which is called per request/thread); use {@link #reset()}.
+     * </p>
+     */
+    @Override
+    public void clear() {
+        // EMPTY
+    }
+
+    /**
+     * Clears all aggregated stats.
+     */
+    public void reset() {
+        stats.clear();
+    }
+}
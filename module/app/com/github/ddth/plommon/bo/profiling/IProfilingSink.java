@@ -0,0 +1,47 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import com.github.ddth.plommon.bo.ProfilingRecord;
+
+/**
+ * Destination of profiling data collected by DAOs.
+ * 
+ * <p>
+ * Implementations must be thread-safe: {@link #record(long, String)} is called
+ * concurrently from all threads that access the storage.
+ * </p>
+ * 
+ * <p>
+ * Asynchronous work completes on other threads (e.g. Cassandra driver I/O
+ * threads). Process-wide sinks (e.g. {@link AggregateProfilingSink}) see it
+ * regardless; per-thread sinks see it in the records of the thread that
+ * started it only if they implement {@link IThreadBoundProfilingSink} (e.g.
+ * {@link RingBufferProfilingSink}). See {@code BaseDao.captureProfilingSink()}.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IProfilingSink {
+    /**
+     * Records a storage action.
+     * 
+     * @param execTimeNs
+     *            execution time in nanoseconds
+     * @param command
+     * @return the created {@link ProfilingRecord}, or {@code null} if the sink
+     *         does not keep individual records
+     */
+    public ProfilingRecord record(long execTimeNs, String command);
+
+    /**
+     * Gets profiling records visible to the current thread.
+     * 
+     * @return
+     */
+    public ProfilingRecord[] getRecords();
+
+    /**
+     * Clears profiling records visible to the current thread.
+     */
+    public void clear();
+}
@@ -0,0 +1,25 @@
+package com.github.ddth.plommon.bo.profiling;
+
+/**
+ * {@link IProfilingSink} that keeps records per thread, and can hand out a
+ * view bound to the calling thread's records.
+ * 
+ * <p>
+ * Used to record asynchronous work: the view is captured by the thread that
+ * starts the work and used by the thread that completes it (e.g. a driver I/O
+ * thread), so the records show up in the starting thread's
+ * {@link IProfilingSink#getRecords()}.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface IThreadBoundProfilingSink extends IProfilingSink {
+    /**
+     * Gets a sink that records into the current thread's records, from
+     * whatever thread it is used.
+     * 
+     * @return
+     */
+    public IProfilingSink bindToCurrentThread();
+}
@@ -0,0 +1,38 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import com.github.ddth.plommon.bo.ProfilingRecord;
+
+/**
+ * Profiling sink that discards everything.
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class NoopProfilingSink implements IProfilingSink {
+
+    public final static NoopProfilingSink INSTANCE = new NoopProfilingSink();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProfilingRecord record(long execTimeNs, String command) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProfilingRecord[] getRecords() {
+        return ProfilingRecord.EMPTY_ARRAY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        // EMPTY
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import com.github.ddth.plommon.bo.ProfilingRecord;
+
+/**
+ * Profiling sink that keeps the last N records of each thread in a
+ * fixed-size ring buffer. When the buffer is full, the oldest record is
+ * overwritten, so memory usage is bounded even on pooled threads that never
+ * clear their profiling data.
+ * 
+ * <p>
+ * Asynchronous work is recorded to the ring of the thread that started it
+ * (see {@link #bindToCurrentThread()}).
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class RingBufferProfilingSink implements IThreadBoundProfilingSink {
+
+    public final static int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Rings are mostly accessed by their own thread, but also by completion
+     * threads of asynchronous work, hence synchronized.
+     */
+    private static class Ring {
+        private ProfilingRecord[] buffer;
+        private int next = 0;
+        private int size = 0;
+
+        public Ring(int capacity) {
+            buffer = new ProfilingRecord[capacity];
+        }
+
+        synchronized public void add(ProfilingRecord record) {
+            buffer[next] = record;
+            next = (next + 1) % buffer.length;
+            if (size < buffer.length) {
+                size++;
+            }
+        }
+
+        synchronized public ProfilingRecord[] toArray() {
+            if (size == 0) {
+                return ProfilingRecord.EMPTY_ARRAY;
+            }
+            ProfilingRecord[] result = new ProfilingRecord[size];
+            int start = (next - size + buffer.length) % buffer.length;
+            for (int i = 0; i < size; i++) {
+                result[i] = buffer[(start + i) % buffer.length];
+            }
+            return result;
+        }
+
+        synchronized public void clear() {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = null;
+            }
+            next = 0;
+            size = 0;
+        }
+    }
+
+    private final int capacity;
+    private final ThreadLocal<Ring> rings = new ThreadLocal<Ring>() {
+        @Override
+        protected Ring initialValue() {
+            return new Ring(capacity);
+        }
+    };
+
+    public RingBufferProfilingSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity
+     *            max number of records kept per thread
+     */
+    public RingBufferProfilingSink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProfilingRecord record(long execTimeNs, String command) {
+        return record(rings.get(), execTimeNs, command);
+    }
+
+    private static ProfilingRecord record(Ring ring, long execTimeNs, String command) {
+        ProfilingRecord record = new ProfilingRecord(execTimeNs / 1000000L, execTimeNs, command);
+        ring.add(record);
+        return record;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IProfilingSink bindToCurrentThread() {
+        final Ring ring = rings.get();
+        return new IProfilingSink() {
+            @Override
+            public ProfilingRecord record(long execTimeNs, String command) {
+                return RingBufferProfilingSink.record(ring, execTimeNs, command);
+            }
+
+            @Override
+            public ProfilingRecord[] getRecords() {
+                return ring.toArray();
+            }
+
+            @Override
+            public void clear() {
+                ring.clear();
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * Records are returned oldest first.
+     * </p>
+     */
+    @Override
+    public ProfilingRecord[] getRecords() {
+        return rings.get().toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        rings.get().clear();
+    }
+}
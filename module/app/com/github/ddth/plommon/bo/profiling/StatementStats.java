@@ -0,0 +1,172 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution statistics (count, errors, latency histogram) of a statement.
+ * 
+ * <p>
+ * Count, total and max are those of {@link AggregateProfilingSink.Stats};
+ * latencies are also recorded into a log-linear histogram (each power-of-two range
+ * is split into {@value #SUB_BUCKETS} linear sub-buckets, so percentile values
+ * are accurate to ~12.5%). All counters are updated lock-free;
+ * {@link #snapshot()} can be taken at any time without stopping recording.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class StatementStats extends AggregateProfilingSink.Stats {
+
+    private final static int SUB_BUCKET_BITS = 3;
+    public final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final static int NUM_BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+    private final String statement;
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    public StatementStats(String statement) {
+        this.statement = statement;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+    }
+
+    /**
+     * Highest value that falls into the specified bucket.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Records an execution.
+     * 
+     * @param execTimeNs
+     * @param error
+     */
+    public void record(long execTimeNs, boolean error) {
+        add(execTimeNs);
+        if (error) {
+            errorCount.incrementAndGet();
+        }
+        buckets.incrementAndGet(bucketIndex(execTimeNs));
+    }
+
+    public String getStatement() {
+        return statement;
+    }
+
+    /**
+     * Takes a point-in-time snapshot of the stats.
+     * 
+     * @return
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long max = getMaxNs();
+        return new Snapshot(statement, getCount(), errorCount.get(), getTotalNs(), max,
+                percentile(counts, total, 0.5, max), percentile(counts, total, 0.99, max),
+                percentile(counts, total, 0.999, max));
+    }
+
+    private static long percentile(long[] counts, long total, double percentile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Immutable snapshot of a {@link StatementStats}.
+     */
+    public static class Snapshot {
+        private final String statement;
+        private final long count, errorCount, totalNs, maxNs, p50Ns, p99Ns, p999Ns;
+
+        public Snapshot(String statement, long count, long errorCount, long totalNs, long maxNs,
+                long p50Ns, long p99Ns, long p999Ns) {
+            this.statement = statement;
+            this.count = count;
+            this.errorCount = errorCount;
+            this.totalNs = totalNs;
+            this.maxNs = maxNs;
+            this.p50Ns = p50Ns;
+            this.p99Ns = p99Ns;
+            this.p999Ns = p999Ns;
+        }
+
+        public String getStatement() {
+            return statement;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getTotalNs() {
+            return totalNs;
+        }
+
+        public long getMeanNs() {
+            return count > 0 ? totalNs / count : 0;
+        }
+
+        public long getMaxNs() {
+            return maxNs;
+        }
+
+        public long getP50Ns() {
+            return p50Ns;
+        }
+
+        public long getP99Ns() {
+            return p99Ns;
+        }
+
+        public long getP999Ns() {
+            return p999Ns;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "[count=" + count + ", errors=" + errorCount + ", mean=" + getMeanNs() / 1000
+                    + "us, p50=" + p50Ns / 1000 + "us, p99=" + p99Ns / 1000 + "us, p999="
+                    + p999Ns / 1000 + "us, max=" + maxNs / 1000 + "us] " + statement;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.ddth.plommon.bo.profiling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import play.Logger;
+
+import com.github.ddth.plommon.utils.PlayAppUtils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Process-wide registry of {@link StatementStats}, keyed by normalized SQL/CQL
+ * statement, plus a slow-query log.
+ * 
+ * <p>
+ * Configurations ({@code application.conf}):
+ * </p>
+ * <ul>
+ * <li>{@code plommon.profiling.stats.enabled}: enable/disable statement
+ * statistics (default {@code true}).</li>
+ * <li>{@code plommon.profiling.stats.maxStatements}: max number of distinct
+ * statements to track (default {@value #DEFAULT_MAX_STATEMENTS}).</li>
+ * <li>{@code plommon.profiling.slowQueryThresholdMs}: statements taking longer
+ * than this are logged to logger {@value #SLOW_QUERY_LOGGER} (default
+ * {@code 0}, i.e. disabled).</li>
+ * </ul>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class StatementStatsRegistry {
+
+    public final static String CONF_KEY_STATS_ENABLED = "plommon.profiling.stats.enabled";
+    public final static String CONF_KEY_STATS_MAX_STATEMENTS = "plommon.profiling.stats.maxStatements";
+    public final static String CONF_KEY_SLOW_QUERY_THRESHOLD = "plommon.profiling.slowQueryThresholdMs";
+
+    public final static int DEFAULT_MAX_STATEMENTS = 2000;
+    public final static String SLOW_QUERY_LOGGER = "plommon.slowquery";
+
+    /**
+     * Statements beyond the limit are aggregated under this name.
+     */
+    public final static String OTHER_STATEMENTS = "<other>";
+
+    private static volatile boolean enabled = true;
+    private static volatile int maxStatements = DEFAULT_MAX_STATEMENTS;
+    private static volatile long slowQueryThresholdNs = 0;
+
+    private static ConcurrentMap<String, StatementStats> registry = new ConcurrentHashMap<String, StatementStats>();
+
+    private final static Pattern PATTERN_STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private final static Pattern PATTERN_NUMBER_LITERAL = Pattern
+            .compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private final static Pattern PATTERN_IN_LIST = Pattern.compile(
+            "\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+    private final static Pattern PATTERN_VALUES_LIST = Pattern.compile(
+            "\\bVALUES\\s*(\\((?:[^()]|\\([^()]*\\))*\\))(?:\\s*,\\s*\\1)+",
+            Pattern.CASE_INSENSITIVE);
+    private final static Pattern PATTERN_WHITESPACES = Pattern.compile("\\s+");
+
+    private static LoadingCache<String, String> normalizedStatements = CacheBuilder.newBuilder()
+            .maximumSize(4096).build(new CacheLoader<String, String>() {
+                @Override
+                public String load(String statement) throws Exception {
+                    return _normalize(statement);
+                }
+            });
+
+    /**
+     * Called by Play's module activator routine.
+     */
+    public static void activatePlugin() {
+        Boolean confEnabled = PlayAppUtils.appConfigBoolean(CONF_KEY_STATS_ENABLED);
+        enabled = confEnabled != null ? confEnabled.booleanValue() : true;
+
+        Integer confMaxStatements = PlayAppUtils.appConfigInteger(CONF_KEY_STATS_MAX_STATEMENTS);
+        maxStatements = confMaxStatements != null ? confMaxStatements.intValue()
+                : DEFAULT_MAX_STATEMENTS;
+
+        Long confThreshold = PlayAppUtils.appConfigLong(CONF_KEY_SLOW_QUERY_THRESHOLD);
+        setSlowQueryThresholdMs(confThreshold != null ? confThreshold.longValue() : 0);
+    }
+
+    /**
+     * Called by Play's module activator routine.
+     */
+    public static void inactivatePlugin() {
+        reset();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Sets the slow-query threshold.
+     * 
+     * @param thresholdMs
+     *            supply {@code 0} to disable slow-query log
+     */
+    public static void setSlowQueryThresholdMs(long thresholdMs) {
+        slowQueryThresholdNs = thresholdMs > 0 ? thresholdMs * 1000000L : 0;
+    }
+
+    public static long getSlowQueryThresholdMs() {
+        return slowQueryThresholdNs / 1000000L;
+    }
+
+    private static String _normalize(String statement) {
+        String result = PATTERN_STRING_LITERAL.matcher(statement).replaceAll("?");
+        result = PATTERN_NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = PATTERN_IN_LIST.matcher(result).replaceAll("IN (?)");
+        result = PATTERN_VALUES_LIST.matcher(result).replaceAll("VALUES $1");
+        result = PATTERN_WHITESPACES.matcher(result).replaceAll(" ");
+        return result.trim();
+    }
+
+    /**
+     * Normalizes a statement: literals are replaced by {@code ?}, IN lists and
+     * repeated multi-row {@code VALUES (...),(...)} groups are collapsed and
+     * whitespaces are compacted, so that statements of the same shape share
+     * the same stats.
+     * 
+     * @param statement
+     * @return
+     */
+    public static String normalize(String statement) {
+        if (statement == null) {
+            return OTHER_STATEMENTS;
+        }
+        try {
+            return normalizedStatements.get(statement);
+        } catch (ExecutionException e) {
+            return statement;
+        }
+    }
+
+    private static StatementStats statsFor(String normalizedStatement) {
+        StatementStats result = registry.get(normalizedStatement);
+        if (result == null) {
+            String key = registry.size() < maxStatements ? normalizedStatement
+                    : OTHER_STATEMENTS;
+            StatementStats newStats = new StatementStats(key);
+            result = registry.putIfAbsent(key, newStats);
+            if (result == null) {
+                result = newStats;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records an execution of a statement.
+     * 
+     * @param statement
+     * @param execTimeNs
+     * @param error
+     */
+    public static void record(String statement, long execTimeNs, boolean error) {
+        long threshold = slowQueryThresholdNs;
+        if (threshold > 0 && execTimeNs >= threshold) {
+            Logger.ALogger logger = Logger.of(SLOW_QUERY_LOGGER);
+            if (logger.isWarnEnabled()) {
+                logger.warn("Slow query [" + execTimeNs / 1000000L + "ms"
+                        + (error ? ", failed" : "") + "]: " + statement);
+            }
+        }
+        if (enabled) {
+            statsFor(normalize(statement)).record(execTimeNs, error);
+        }
+    }
+
+    /**
+     * Gets stats snapshot of a statement.
+     * 
+     * @param statement
+     * @return {@code null} if the statement has not been recorded
+     */
+    public static StatementStats.Snapshot getSnapshot(String statement) {
+        StatementStats stats = registry.get(normalize(statement));
+        return stats != null ? stats.snapshot() : null;
+    }
+
+    /**
+     * Gets stats snapshots of all statements, sorted by total execution time
+     * (descending).
+     * 
+     * @return
+     */
+    public static List<StatementStats.Snapshot> getSnapshots() {
+        List<StatementStats.Snapshot> result = new ArrayList<StatementStats.Snapshot>();
+        for (StatementStats stats : registry.values()) {
+            result.add(stats.snapshot());
+        }
+        Collections.sort(result, new Comparator<StatementStats.Snapshot>() {
+            @Override
+            public int compare(StatementStats.Snapshot o1, StatementStats.Snapshot o2) {
+                return o1.getTotalNs() < o2.getTotalNs() ? 1
+                        : (o1.getTotalNs() > o2.getTotalNs() ? -1 : 0);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Clears all stats.
+     */
+    public static void reset() {
+        registry.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.ddth.plommon.utils;
+
+import java.util.Map;
+
+import com.github.ddth.plommon.bo.BaseDao;
+import com.github.ddth.plommon.bo.cache.ICacheBackend;
+
+/**
+ * {@link ISessionStore} that keeps sessions in {@link BaseDao}'s backend cache
+ * (see {@link BaseDao#getCacheBackend()}), so sessions are shared between
+ * application nodes if the backend cache is.
+ * 
+ * <p>
+ * Note: session values must be serializable if the backend cache is remote.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CacheSessionStore implements ISessionStore {
+
+    public final static String DEFAULT_KEY_PREFIX = "__session__:";
+
+    private final ICacheBackend cacheBackend;
+    private final String keyPrefix;
+
+    /**
+     * Constructs a new {@link CacheSessionStore} that uses {@link BaseDao}'s
+     * current backend cache.
+     */
+    public CacheSessionStore() {
+        this(null, DEFAULT_KEY_PREFIX);
+    }
+
+    /**
+     * Constructs a new {@link CacheSessionStore}.
+     * 
+     * @param cacheBackend
+     *            supply {@code null} to use {@link BaseDao}'s current backend
+     *            cache
+     * @param keyPrefix
+     */
+    public CacheSessionStore(ICacheBackend cacheBackend, String keyPrefix) {
+        this.cacheBackend = cacheBackend;
+        this.keyPrefix = keyPrefix;
+    }
+
+    private ICacheBackend cacheBackend() {
+        return cacheBackend != null ? cacheBackend : BaseDao.getCacheBackend();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, Object> load(String sessionId) {
+        Object data = cacheBackend().get(keyPrefix + sessionId);
+        return data instanceof Map ? SessionUtils.copySessionData((Map<String, Object>) data)
+                : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(String sessionId, Map<String, Object> data, int ttl) {
+        cacheBackend().set(keyPrefix + sessionId, SessionUtils.copySessionData(data),
+                ttl > 0 ? ttl : 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(String sessionId) {
+        cacheBackend().remove(keyPrefix + sessionId);
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.ddth.plommon.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.github.ddth.commons.utils.DPathUtils;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A pre-parsed DPath expression (see {@link DPathUtils}).
+ * 
+ * <p>
+ * {@link DPathUtils} parses the path string on every call. A
+ * {@link CompiledDPath} parses it once, so repeated reads/writes only walk the
+ * target object. Typical usage: as {@code static final} fields of BO classes.
+ * </p>
+ * 
+ * <pre>
+ * private final static CompiledDPath ATTR_NAME = CompiledDPath.compile(&quot;name&quot;);
+ * private final static CompiledDPath ATTR_FIRST_TAG = CompiledDPath.compile(&quot;tags.[0]&quot;);
+ * </pre>
+ * 
+ * <p>
+ * The syntax is {@link DPathUtils}': segments are separated by {@code .}, and
+ * a list/array index is a segment of its own ({@code a.b.[0]}, not
+ * {@code a.b[0]}, which is map key {@code "b[0]"}). Map keys and list/array
+ * indexes are resolved directly; cases that need
+ * {@link DPathUtils}'s own handling (type conversion, creating missing
+ * intermediate nodes, unexpected node types) are delegated to it, so results
+ * are the same as {@link DPathUtils}'.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class CompiledDPath {
+
+    private final static int CACHE_SIZE = 10000;
+    private static LoadingCache<String, CompiledDPath> cachedPaths = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE).build(new CacheLoader<String, CompiledDPath>() {
+                @Override
+                public CompiledDPath load(String dPath) throws Exception {
+                    return new CompiledDPath(dPath);
+                }
+            });
+
+    /**
+     * Compiles a DPath expression.
+     * 
+     * @param dPath
+     * @return
+     */
+    public static CompiledDPath compile(String dPath) {
+        return new CompiledDPath(dPath);
+    }
+
+    /**
+     * Gets a compiled DPath expression from the process-wide cache, compiling
+     * it if not cached.
+     * 
+     * @param dPath
+     * @return
+     */
+    public static CompiledDPath cached(String dPath) {
+        try {
+            return cachedPaths.get(dPath);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final String dPath;
+
+    /**
+     * Path segments: {@link String} for map keys, {@link Integer} for
+     * list/array indexes ({@link #UNRESOLVED} for segments left to
+     * {@link DPathUtils}).
+     */
+    private final Object[] segments;
+
+    private CompiledDPath(String dPath) {
+        this.dPath = dPath;
+        this.segments = parse(dPath);
+    }
+
+    private final static Pattern PATTERN_INDEX = Pattern.compile("^\\[(\\d+)\\]$");
+
+    private static Object[] parse(String dPath) {
+        List<Object> result = new ArrayList<Object>();
+        for (String part : dPath.split("\\.")) {
+            Matcher m = PATTERN_INDEX.matcher(part);
+            if (m.matches()) {
+                try {
+                    result.add(Integer.valueOf(m.group(1)));
+                } catch (NumberFormatException e) {
+                    // index out of int range: let DPathUtils deal with it
+                    result.add(UNRESOLVED);
+                }
+            } else {
+                result.add(part);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Gets the top-level map key of the path (e.g. {@code "a"} of
+     * {@code "a.b.[0]"}).
+     * 
+     * @return {@code null} if the path does not start with a map key
+     */
+    public String getRootKey() {
+        return segments.length > 0 && segments[0] instanceof String ? (String) segments[0]
+                : null;
+    }
+
+    /**
+     * The original DPath expression.
+     * 
+     * @return
+     */
+    public String getPath() {
+        return dPath;
+    }
+
+    private final static Object UNRESOLVED = new Object();
+
+    /**
+     * Walks the first {@code depth} segments.
+     * 
+     * @return {@link #UNRESOLVED} if a node can not be resolved directly
+     */
+    private Object walk(Object target, int depth) {
+        Object node = target;
+        for (int i = 0; i < depth; i++) {
+            if (node == null) {
+                return null;
+            }
+            Object segment = segments[i];
+            if (segment == UNRESOLVED) {
+                return UNRESOLVED;
+            }
+            if (segment instanceof String) {
+                if (!(node instanceof Map)) {
+                    return UNRESOLVED;
+                }
+                node = ((Map<?, ?>) node).get(segment);
+            } else {
+                int index = ((Integer) segment).intValue();
+                if (node instanceof List) {
+                    List<?> list = (List<?>) node;
+                    node = index >= 0 && index < list.size() ? list.get(index) : null;
+                } else if (node instanceof Object[]) {
+                    Object[] array = (Object[]) node;
+                    node = index >= 0 && index < array.length ? array[index] : null;
+                } else {
+                    return UNRESOLVED;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Gets a value from the target object.
+     * 
+     * @param target
+     * @return
+     * @see DPathUtils#getValue(Object, String)
+     */
+    public Object getValue(Object target) {
+        Object value = walk(target, segments.length);
+        return value != UNRESOLVED ? value : DPathUtils.getValue(target, dPath);
+    }
+
+    /**
+     * Gets a value from the target object, converted to the specified type.
+     * 
+     * @param target
+     * @param clazz
+     * @return
+     * @see DPathUtils#getValue(Object, String, Class)
+     */
+    public <T> T getValue(Object target, Class<T> clazz) {
+        Object value = walk(target, segments.length);
+        if (value == null) {
+            return null;
+        }
+        if (value != UNRESOLVED && clazz.isInstance(value)) {
+            return clazz.cast(value);
+        }
+        return DPathUtils.getValue(target, dPath, clazz);
+    }
+
+    /**
+     * Sets a value to the target object.
+     * 
+     * @param target
+     * @param value
+     * @see DPathUtils#setValue(Object, String, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public void setValue(Object target, Object value) {
+        if (segments.length > 0 && segments[segments.length - 1] instanceof String) {
+            Object parent = walk(target, segments.length - 1);
+            if (parent instanceof Map) {
+                ((Map<Object, Object>) parent).put(segments[segments.length - 1], value);
+                return;
+            }
+        }
+        DPathUtils.setValue(target, dPath, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return dPath;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.ddth.plommon.utils;
+
+import java.util.Map;
+
+/**
+ * Server-side storage of session data, used by {@link SessionUtils} when
+ * configured (the session cookie then holds only the session id).
+ * 
+ * <p>
+ * Implementations must be thread-safe, and must not share the returned/stored
+ * maps with callers (i.e. copy them, including the per-item maps they hold).
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public interface ISessionStore {
+
+    /**
+     * Loads data of a session.
+     * 
+     * @param sessionId
+     * @return {@code null} if the session does not exist or has expired
+     */
+    public Map<String, Object> load(String sessionId);
+
+    /**
+     * Saves data of a session.
+     * 
+     * @param sessionId
+     * @param data
+     * @param ttl
+     *            time-to-live in seconds
+     */
+    public void save(String sessionId, Map<String, Object> data, int ttl);
+
+    /**
+     * Removes a session.
+     * 
+     * @param sessionId
+     */
+    public void remove(String sessionId);
+}
@@ -0,0 +1,93 @@
+package com.github.ddth.plommon.utils;
+
+import java.util.Map;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link ISessionStore} that keeps sessions in a local, size-bounded in-memory
+ * cache.
+ * 
+ * <p>
+ * Sessions are not shared between application nodes; suitable for
+ * single-node deployments, development and tests.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class InMemorySessionStore implements ISessionStore {
+
+    public final static int DEFAULT_MAX_SESSIONS = 100000;
+
+    private static class Entry {
+        private final Map<String, Object> data;
+        private final long expireAt;
+
+        public Entry(Map<String, Object> data, long expireAt) {
+            this.data = data;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final Cache<String, Entry> sessions;
+
+    public InMemorySessionStore() {
+        this(DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * Constructs a new {@link InMemorySessionStore}.
+     * 
+     * @param maxSessions
+     *            max number of sessions to keep, least recently used sessions
+     *            are evicted first
+     */
+    public InMemorySessionStore(int maxSessions) {
+        sessions = CacheBuilder.newBuilder().maximumSize(maxSessions).build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> load(String sessionId) {
+        Entry entry = sessions.getIfPresent(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt > 0 && entry.expireAt <= System.currentTimeMillis()) {
+            sessions.invalidate(sessionId);
+            return null;
+        }
+        return SessionUtils.copySessionData(entry.data);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(String sessionId, Map<String, Object> data, int ttl) {
+        long expireAt = ttl > 0 ? System.currentTimeMillis() + ttl * 1000L : 0;
+        sessions.put(sessionId, new Entry(SessionUtils.copySessionData(data), expireAt));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+
+    /**
+     * Gets number of sessions currently kept (including expired ones not yet
+     * evicted).
+     * 
+     * @return
+     */
+    public long size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,303 @@
+package com.github.ddth.plommon.utils;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import play.mvc.Http;
+
+import com.github.ddth.commons.utils.DPathUtils;
+import com.github.ddth.commons.utils.SerializationUtils;
+
+/**
+ * Request-scoped view of the session used by {@link SessionUtils}.
+ * 
+ * <p>
+ * Each session item is decoded at most once per request, expiry refreshes
+ * ("touches") are applied only after a fraction of the item's TTL has elapsed
+ * (see {@link SessionUtils#setTouchFraction(double)}), and all changes are
+ * written back by a single {@link #flush()}.
+ * </p>
+ * 
+ * <p>
+ * When {@link SessionFlushAction} is installed, one instance lives in
+ * {@link Http.Context#args} for the whole request and is flushed when the
+ * action completes; otherwise {@link SessionUtils} uses a new instance per
+ * call and flushes it immediately.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class RequestSession {
+
+    private final static String CTX_ARG_KEY = RequestSession.class.getName();
+
+    private static final String KEY_EXPIRY = "e";
+    private static final String KEY_VALUE = "v";
+    private static final String KEY_TTL = "t";
+
+    /**
+     * Name of the cookie session item holding the session id (server-side
+     * storage mode).
+     */
+    private static final String COOKIE_KEY_SESSION_ID = "__sid__";
+
+    /**
+     * Reserved session data item: timestamp (ms) of the last touch of the
+     * server-side session.
+     */
+    private static final String KEY_TOUCHED = "__touched__";
+
+    /**
+     * Starts a request-scoped session for the supplied context.
+     * 
+     * @param ctx
+     * @return
+     */
+    public static RequestSession begin(Http.Context ctx) {
+        RequestSession session = new RequestSession(ctx.session());
+        if (ctx.args == null) {
+            ctx.args = new HashMap<String, Object>();
+        }
+        ctx.args.put(CTX_ARG_KEY, session);
+        return session;
+    }
+
+    /**
+     * Gets the request-scoped session of the current request.
+     * 
+     * @return {@code null} if there is no current request, or no
+     *         request-scoped session has been started (see
+     *         {@link #begin(Http.Context)})
+     */
+    public static RequestSession current() {
+        Http.Context ctx = Http.Context.current.get();
+        Object session = ctx != null && ctx.args != null ? ctx.args.get(CTX_ARG_KEY) : null;
+        return session instanceof RequestSession ? (RequestSession) session : null;
+    }
+
+    /*----------------------------------------------------------------------*/
+
+    private final Http.Session cookieSession;
+    private final ISessionStore store;
+
+    /**
+     * Cookie storage mode: decoded items ({@code null} value: item does not
+     * exist), and names of the items to write back.
+     */
+    private final Map<String, Map<String, Object>> cookieEntries = new HashMap<String, Map<String, Object>>();
+    private final Set<String> cookieDirtyKeys = new LinkedHashSet<String>();
+
+    /**
+     * Server-side storage mode: session data, loaded at most once.
+     */
+    private String sessionId;
+    private Map<String, Object> serverData;
+    private boolean serverLoaded = false;
+    private boolean serverDirty = false;
+
+    /**
+     * Constructs a new {@link RequestSession}.
+     * 
+     * @param cookieSession
+     *            Play's (cookie) session of the request
+     */
+    public RequestSession(Http.Session cookieSession) {
+        this.cookieSession = cookieSession;
+        this.store = SessionUtils.getSessionStore();
+    }
+
+    private Map<String, Object> serverData(boolean create) {
+        if (!serverLoaded) {
+            serverLoaded = true;
+            sessionId = cookieSession.get(COOKIE_KEY_SESSION_ID);
+            serverData = sessionId != null ? store.load(sessionId) : null;
+        }
+        if (serverData == null && create) {
+            if (sessionId == null) {
+                sessionId = UUID.randomUUID().toString();
+                cookieSession.put(COOKIE_KEY_SESSION_ID, sessionId);
+            }
+            serverData = new HashMap<String, Object>();
+        }
+        return serverData;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> decodeCookieEntry(String sValue) {
+        Map<String, Object> sEntry = new HashMap<String, Object>();
+        try {
+            Object obj = SerializationUtils.fromJsonString(sValue);
+            if (obj instanceof Map<?, ?>) {
+                return (Map<String, Object>) obj;
+            }
+            sEntry.put(KEY_VALUE, obj);
+        } catch (Exception e) {
+            sEntry.put(KEY_VALUE, sValue);
+        }
+        return sEntry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> entry(String key) {
+        if (store != null) {
+            Map<String, Object> data = serverData(false);
+            Object obj = data != null ? data.get(key) : null;
+            return obj instanceof Map<?, ?> ? (Map<String, Object>) obj : null;
+        }
+        if (!cookieEntries.containsKey(key)) {
+            String sValue = cookieSession.get(key);
+            cookieEntries.put(key, sValue != null ? decodeCookieEntry(sValue) : null);
+        }
+        return cookieEntries.get(key);
+    }
+
+    private void entryChanged(String key) {
+        if (store != null) {
+            serverDirty = true;
+        } else {
+            cookieDirtyKeys.add(key);
+        }
+    }
+
+    /**
+     * Has the touch fraction of {@code ttl} elapsed since {@code lastTouch}?
+     */
+    private static boolean touchDue(long lastTouch, long ttl, long now) {
+        return now - lastTouch >= (long) (ttl * 1000 * SessionUtils.getTouchFraction());
+    }
+
+    /**
+     * Gets a session item.
+     * 
+     * @param key
+     * @param touch
+     *            refresh the item's expiry (throttled)
+     * @return the session item, or {@code null} if the item does not exist or
+     *         it has been expired
+     */
+    public Object get(String key, boolean touch) {
+        Map<String, Object> sEntry = entry(key);
+        if (sEntry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Long expiry = DPathUtils.getValue(sEntry, KEY_EXPIRY, Long.class);
+        if (expiry != null && expiry.longValue() <= now) {
+            remove(key);
+            return null;
+        }
+        if (touch) {
+            Long ttl = DPathUtils.getValue(sEntry, KEY_TTL, Long.class);
+            // items written before v0.5.2 have no TTL and are not touched
+            if (expiry != null && ttl != null
+                    && touchDue(expiry.longValue() - ttl.longValue() * 1000, ttl, now)) {
+                // copy-on-write: the loaded entry may be shared with the session store
+                sEntry = new HashMap<String, Object>(sEntry);
+                sEntry.put(KEY_EXPIRY, now + ttl.longValue() * 1000);
+                if (store != null) {
+                    serverData.put(key, sEntry);
+                } else {
+                    cookieEntries.put(key, sEntry);
+                }
+                entryChanged(key);
+            }
+            if (store != null) {
+                Long touched = DPathUtils.getValue(serverData, KEY_TOUCHED, Long.class);
+                if (touched == null
+                        || touchDue(touched.longValue(), SessionUtils.getSessionTtl(), now)) {
+                    serverData.put(KEY_TOUCHED, now);
+                    serverDirty = true;
+                }
+            }
+        }
+        return sEntry.get(KEY_VALUE);
+    }
+
+    /**
+     * Sets a session item.
+     * 
+     * @param key
+     * @param value
+     * @param ttl
+     *            time-to-live in seconds, {@code 0} means no expiry
+     */
+    public void set(String key, Object value, long ttl) {
+        Map<String, Object> sEntry = new HashMap<String, Object>();
+        sEntry.put(KEY_VALUE, value);
+        long now = System.currentTimeMillis();
+        if (ttl > 0) {
+            sEntry.put(KEY_EXPIRY, now + ttl * 1000);
+            sEntry.put(KEY_TTL, ttl);
+        }
+        if (store != null) {
+            Map<String, Object> data = serverData(true);
+            data.put(key, sEntry);
+            data.put(KEY_TOUCHED, now);
+        } else {
+            cookieEntries.put(key, sEntry);
+        }
+        entryChanged(key);
+    }
+
+    /**
+     * Removes a session item.
+     * 
+     * @param key
+     */
+    public void remove(String key) {
+        if (store != null) {
+            Map<String, Object> data = serverData(false);
+            if (data != null && data.remove(key) != null) {
+                serverDirty = true;
+            }
+        } else {
+            cookieEntries.put(key, null);
+            cookieDirtyKeys.add(key);
+        }
+    }
+
+    /**
+     * Removes all session items and, in server-side storage mode, the
+     * server-side session. Takes effect immediately.
+     */
+    public void destroy() {
+        if (store != null) {
+            serverData(false);
+            if (sessionId != null) {
+                store.remove(sessionId);
+            }
+            sessionId = null;
+            serverData = null;
+            serverDirty = false;
+        }
+        cookieEntries.clear();
+        cookieDirtyKeys.clear();
+        cookieSession.clear();
+    }
+
+    /**
+     * Writes all changes back to the cookie session/session store.
+     */
+    public void flush() {
+        if (store != null) {
+            if (serverDirty && serverData != null) {
+                store.save(sessionId, serverData, SessionUtils.getSessionTtl());
+            }
+            serverDirty = false;
+        } else {
+            for (String key : cookieDirtyKeys) {
+                Map<String, Object> sEntry = cookieEntries.get(key);
+                if (sEntry != null) {
+                    cookieSession.put(key, SerializationUtils.toJsonString(sEntry));
+                } else {
+                    cookieSession.remove(key);
+                }
+            }
+            cookieDirtyKeys.clear();
+        }
+    }
+}
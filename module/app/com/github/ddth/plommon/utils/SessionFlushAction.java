@@ -0,0 +1,38 @@
+package com.github.ddth.plommon.utils;
+
+import play.libs.F;
+import play.libs.F.Promise;
+import play.mvc.Action;
+import play.mvc.Http;
+import play.mvc.SimpleResult;
+
+/**
+ * Action that makes {@link SessionUtils} work on a request-scoped session (see
+ * {@link RequestSession}): session items are decoded once per request, and all
+ * changes are written back once, when the action completes.
+ * 
+ * <p>
+ * Usage: annotate controllers/actions with
+ * {@code @With(SessionFlushAction.class)}.
+ * </p>
+ * 
+ * @author Thanh Nguyen <btnguyen2k@gmail.com>
+ * @since 0.5.2
+ */
+public class SessionFlushAction extends Action.Simple {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Promise<SimpleResult> call(Http.Context ctx) throws Throwable {
+        final RequestSession session = RequestSession.begin(ctx);
+        return delegate.call(ctx).map(new F.Function<SimpleResult, SimpleResult>() {
+            @Override
+            public SimpleResult apply(SimpleResult result) throws Throwable {
+                session.flush();
+                return result;
+            }
+        });
+    }
+}
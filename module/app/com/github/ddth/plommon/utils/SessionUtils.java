@@ -5,9 +5,6 @@ import java.util.Map;
 
 import play.mvc.Controller;
 
-import com.github.ddth.commons.utils.DPathUtils;
-import com.github.ddth.commons.utils.SerializationUtils;
-
 /**
  * Session utilities with enhanced functionality.
  * 
@@ -15,6 +12,11 @@ import com.github.ddth.commons.utils.SerializationUtils;
  * <li>Complex data structure for session items. Session items are automatically
  * serialized/deserialized using JSON format.</li>
  * <li>TTL (time-to-live): session items can have expiry.</li>
+ * <li>(Since v0.5.2) Optional server-side storage (see
+ * {@link #setSessionStore(ISessionStore)}): the session cookie then holds only
+ * a session id.</li>
+ * <li>(Since v0.5.2) Throttled expiry refreshes, and request-scoped
+ * decoding/write-back when {@link SessionFlushAction} is installed.</li>
  * </ul>
  * 
  * @author Thanh Nguyen <btnguyen2k@gmail.com>
@@ -28,8 +30,156 @@ public class SessionUtils {
      */
     public static boolean autoTouch = true;
 
-    private static final String KEY_EXPIRY = "e";
-    private static final String KEY_VALUE = "v";
+    public final static String CONF_KEY_SESSION_STORE = "plommon.session.store";
+    public final static String CONF_KEY_SESSION_TTL = "plommon.session.ttl";
+    public final static String CONF_KEY_SESSION_TOUCH_FRACTION = "plommon.session.touchFraction";
+
+    public final static int DEFAULT_SESSION_TTL = 3600;
+    public final static double DEFAULT_TOUCH_FRACTION = 0.25;
+
+    private static volatile ISessionStore sessionStore = null;
+    private static volatile int sessionTtl = DEFAULT_SESSION_TTL;
+    private static volatile double touchFraction = DEFAULT_TOUCH_FRACTION;
+
+    /**
+     * Configures session storage from application's configurations:
+     * 
+     * <ul>
+     * <li>{@code plommon.session.store}: {@code cookie} (default, session items
+     * are stored in Play's cookie session), {@code memory} (
+     * {@link InMemorySessionStore}) or {@code cache} ({@link CacheSessionStore}
+     * ).</li>
+     * <li>{@code plommon.session.ttl}: idle timeout in seconds of server-side
+     * sessions (default {@code 3600}).</li>
+     * <li>{@code plommon.session.touchFraction}: the expiry of a session/item
+     * is refreshed only after this fraction of its TTL has elapsed since the
+     * last refresh (default {@code 0.25}).</li>
+     * </ul>
+     * 
+     * @since 0.5.2
+     */
+    public static void configure() {
+        Integer confTtl = PlayAppUtils.appConfigInteger(CONF_KEY_SESSION_TTL);
+        if (confTtl != null) {
+            sessionTtl = confTtl.intValue();
+        }
+        Double confTouchFraction = PlayAppUtils.appConfigDouble(CONF_KEY_SESSION_TOUCH_FRACTION);
+        if (confTouchFraction != null) {
+            touchFraction = confTouchFraction.doubleValue();
+        }
+        String confStore = PlayAppUtils.appConfigString(CONF_KEY_SESSION_STORE);
+        if ("memory".equalsIgnoreCase(confStore)) {
+            setSessionStore(new InMemorySessionStore());
+        } else if ("cache".equalsIgnoreCase(confStore)) {
+            setSessionStore(new CacheSessionStore());
+        } else {
+            setSessionStore(null);
+        }
+    }
+
+    /**
+     * Sets the server-side session store.
+     * 
+     * @param store
+     *            supply {@code null} to store session items in Play's cookie
+     *            session
+     * @since 0.5.2
+     */
+    public static void setSessionStore(ISessionStore store) {
+        sessionStore = store;
+    }
+
+    /**
+     * Gets the server-side session store.
+     * 
+     * @return {@code null} if session items are stored in Play's cookie
+     *         session
+     * @since 0.5.2
+     */
+    public static ISessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    /**
+     * Sets idle timeout of server-side sessions.
+     * 
+     * @param ttl
+     *            in seconds
+     * @since 0.5.2
+     */
+    public static void setSessionTtl(int ttl) {
+        sessionTtl = ttl;
+    }
+
+    /**
+     * Gets idle timeout of server-side sessions.
+     * 
+     * @return in seconds
+     * @since 0.5.2
+     */
+    public static int getSessionTtl() {
+        return sessionTtl;
+    }
+
+    /**
+     * Sets the fraction of a session/item's TTL that must elapse before its
+     * expiry is refreshed again ("touched"); {@code 0} refreshes on every
+     * access.
+     * 
+     * @param fraction
+     * @since 0.5.2
+     */
+    public static void setTouchFraction(double fraction) {
+        touchFraction = fraction;
+    }
+
+    /**
+     * Gets the fraction of a session/item's TTL that must elapse before its
+     * expiry is refreshed again.
+     * 
+     * @return
+     * @since 0.5.2
+     */
+    public static double getTouchFraction() {
+        return touchFraction;
+    }
+
+    /**
+     * Copies session data for {@link ISessionStore} implementations: the
+     * data map and the per-item maps (value/expiry/TTL) it holds are copied,
+     * item values are not.
+     * 
+     * @param data
+     * @return
+     * @since 0.5.2
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> copySessionData(Map<String, Object> data) {
+        Map<String, Object> result = new HashMap<String, Object>(data);
+        for (Map.Entry<String, Object> entry : result.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map<?, ?>) {
+                entry.setValue(new HashMap<String, Object>((Map<String, Object>) value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the request-scoped session if there is one (see
+     * {@link SessionFlushAction}), otherwise a new session view that the
+     * caller must flush right away (see {@link #flushIfStandalone}).
+     */
+    private static RequestSession requestSession() {
+        RequestSession session = RequestSession.current();
+        return session != null ? session : new RequestSession(Controller.session());
+    }
+
+    private static void flushIfStandalone(RequestSession session) {
+        if (session != RequestSession.current()) {
+            session.flush();
+        }
+    }
 
     /**
      * Gets a session item.
@@ -47,36 +197,21 @@ public class SessionUtils {
     /**
      * Gets a session item.
      * 
+     * <p>
+     * Since v0.5.2, the item's expiry is refreshed only if at least
+     * {@link #getTouchFraction()} of its TTL has elapsed since the last
+     * refresh.
+     * </p>
+     * 
      * @param key
      * @return the session item, or <code>null</code> if the item does not exist
      *         or it has been expired
      */
-    @SuppressWarnings("unchecked")
     public static Object getSession(String key, boolean touch) {
-        String sValue = Controller.session(key);
-        if (sValue == null) {
-            return null;
-        }
-        try {
-            Object obj = SerializationUtils.fromJsonString(sValue);
-            if (!(obj instanceof Map<?, ?>)) {
-                return obj;
-            }
-            Map<String, Object> sEntry = (Map<String, Object>) obj;
-            Long expiry = DPathUtils.getValue(sEntry, KEY_EXPIRY, Long.class);
-            if (expiry == null || expiry.longValue() > System.currentTimeMillis()) {
-                Object result = sEntry.get(KEY_VALUE);
-                if (touch && expiry != null) {
-                    setSession(key, result, expiry / 1000);
-                }
-                return result;
-            } else {
-                Controller.session().remove(key);
-                return null;
-            }
-        } catch (Exception e) {
-            return sValue;
-        }
+        RequestSession session = requestSession();
+        Object result = session.get(key, touch);
+        flushIfStandalone(session);
+        return result;
     }
 
     /**
@@ -86,7 +221,19 @@ public class SessionUtils {
      * @since 0.4.2
      */
     public static void removeSession(String key) {
-        Controller.session().remove(key);
+        RequestSession session = requestSession();
+        session.remove(key);
+        flushIfStandalone(session);
+    }
+
+    /**
+     * Removes all session items and, in server-side storage mode, the
+     * server-side session (e.g. on logout).
+     * 
+     * @since 0.5.2
+     */
+    public static void destroySession() {
+        requestSession().destroy();
     }
 
     /**
@@ -108,11 +255,8 @@ public class SessionUtils {
      *            time-to-live in seconds
      */
     public static void setSession(String key, Object value, long ttl) {
-        Map<String, Object> sEntry = new HashMap<String, Object>();
-        sEntry.put(KEY_VALUE, value);
-        if (ttl > 0) {
-            sEntry.put(KEY_EXPIRY, System.currentTimeMillis() + ttl * 1000);
-        }
-        Controller.session(key, SerializationUtils.toJsonString(sEntry));
+        RequestSession session = requestSession();
+        session.set(key, value, ttl);
+        flushIfStandalone(session);
     }
 }
@@ -5,7 +5,7 @@ import play.Project._
 object ApplicationBuild extends Build {
 
   val appName         = "play-module-plommon"
-  val appVersion      = "0.5.1.5"
+  val appVersion      = "0.5.2-SNAPSHOT"
 
   val appDependencies = Seq(
     // Add your project dependencies here,
@@ -13,6 +13,7 @@ object ApplicationBuild extends Build {
     "com.datastax.cassandra"    % "cassandra-driver-core"   % "2.0.1",
     "org.springframework"       % "spring-jdbc"             % "3.2.4.RELEASE",
     "com.github.ddth"           % "ddth-commons"            % "0.2.1.1",
+    "com.fasterxml.jackson.dataformat" % "jackson-dataformat-smile" % "2.2.2",
     javaCore,
     javaJdbc,
     javaEbean,